@@ -15,6 +15,7 @@ dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
     implementation("org.apache.kafka:kafka-clients:3.4.0")
+    implementation("com.github.luben:zstd-jni:1.5.2-1")
     implementation("com.google.guava:guava:32.0.0-android")
     implementation("ch.qos.logback:logback-classic:1.2.6")
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.7.1")
@@ -0,0 +1,79 @@
+package org.example;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+
+import java.util.Map;
+
+import static org.example.ClientConfig.findMetric;
+import static org.example.ClientConfig.value;
+
+/**
+ * Tells the watcher when to stop handing out files, from how full the stages after it are:
+ * the queues of the worker lanes (read/tokenize stage) and the {@code KafkaProducer} record
+ * buffer (send stage). Dispatch pauses once the fullest stage reaches the pause level and
+ * resumes only when every stage is back under the resume level, so it does not flap around a
+ * single threshold.
+ */
+public class Backpressure {
+    private final KafkaProducer<?, ?> producer;
+    private final WorkerPool[] lanes;
+    private final double pauseAt;
+    private final double resumeAt;
+    private Metric bufferAvailable;
+    private Metric bufferTotal;
+    private volatile boolean paused;
+
+    public Backpressure(KafkaProducer<?, ?> producer, WorkerPool[] lanes, double pauseAt, double resumeAt) {
+        this.producer = producer;
+        this.lanes = lanes;
+        this.pauseAt = pauseAt;
+        this.resumeAt = resumeAt;
+    }
+
+    /** Whether the watcher should hold files back right now. */
+    public boolean isSaturated() {
+        double load = getLoad();
+        if (paused && load < resumeAt) {
+            paused = false;
+        } else if (!paused && load >= pauseAt) {
+            paused = true;
+        }
+        return paused;
+    }
+
+    /** Fill level of the fullest stage, between 0 and 1. */
+    public double getLoad() {
+        double load = getBufferUtilization();
+        for (WorkerPool lane : lanes) {
+            load = Math.max(load, lane.getQueueUtilization());
+        }
+        return load;
+    }
+
+    /** Share of the producer record buffer in use, between 0 and 1. */
+    public synchronized double getBufferUtilization() {
+        if (bufferAvailable == null || bufferTotal == null) {
+            Map<MetricName, ? extends Metric> metrics = producer.metrics();
+            bufferAvailable = findMetric(metrics, "producer-metrics", "buffer-available-bytes");
+            bufferTotal = findMetric(metrics, "producer-metrics", "buffer-total-bytes");
+            if (bufferAvailable == null || bufferTotal == null) {
+                return 0;
+            }
+        }
+        double total = value(bufferTotal);
+        double available = value(bufferAvailable);
+        return total > 0 && !Double.isNaN(available) ? 1 - available / total : 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder gauges = new StringBuilder();
+        for (WorkerPool lane : lanes) {
+            gauges.append(lane).append(", ");
+        }
+        return gauges.append("send buffer ").append(Math.round(getBufferUtilization() * 100)).append("% full")
+                .append(paused ? ", dispatch paused" : "").toString();
+    }
+}
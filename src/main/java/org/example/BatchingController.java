@@ -0,0 +1,66 @@
+package org.example;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+import static org.example.ClientConfig.metric;
+
+/**
+ * Adjusts how many words are packed into one record from the producer's own metrics.
+ * <p>
+ * The {@code KafkaProducer} batching settings are fixed once it is created, so the controller
+ * tunes the batching the application controls instead. When the average request latency
+ * exceeds the target, packs are halved so requests get smaller. When latency is well under
+ * the target and records are flowing, packs grow by half so fewer, larger records are sent.
+ * New sizes apply to the next file or chunk.
+ */
+public class BatchingController implements Runnable {
+    private static final Logger log = LoggerFactory.getLogger(BatchingController.class);
+
+    // Below this many records per second there is not enough traffic to judge the batching
+    private static final double BUSY_RECORD_RATE = 1000;
+
+    private final KafkaProducer<?, ?> producer;
+    private final int maxPackedWords;
+    private final double targetLatencyMs;
+    private volatile int packedWords;
+
+    public BatchingController(KafkaProducer<?, ?> producer, int initialPackedWords, int maxPackedWords,
+                              double targetLatencyMs) {
+        this.producer = producer;
+        this.packedWords = initialPackedWords;
+        this.maxPackedWords = maxPackedWords;
+        this.targetLatencyMs = targetLatencyMs;
+    }
+
+    public int getPackedWords() {
+        return packedWords;
+    }
+
+    @Override
+    public void run() {
+        Map<MetricName, ? extends Metric> metrics = producer.metrics();
+        double latency = metric(metrics, "producer-metrics", "request-latency-avg");
+        double recordRate = metric(metrics, "producer-metrics", "record-send-rate");
+        if (Double.isNaN(latency) || Double.isNaN(recordRate)) {
+            return;
+        }
+        int current = packedWords;
+        int next = current;
+        if (latency > targetLatencyMs) {
+            next = Math.max(1, current / 2);
+        } else if (latency < targetLatencyMs / 2 && recordRate >= BUSY_RECORD_RATE) {
+            next = Math.min(maxPackedWords, current + Math.max(1, current / 2));
+        }
+        if (next != current) {
+            log.info("Request latency {} ms at {} records/s, packing {} words per record (was {})",
+                    String.format("%.1f", latency), String.format("%.0f", recordRate), next, current);
+            packedWords = next;
+        }
+    }
+}
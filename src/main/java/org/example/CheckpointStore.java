@@ -0,0 +1,74 @@
+package org.example;
+
+import com.google.common.hash.Hasher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps the acknowledged offset of each file being ingested in a small file of its own.
+ * <p>
+ * A checkpoint is named after a fingerprint of the input's size, modification time and first
+ * and last bytes, not after its path: the renames of the claim protocol keep all of them, so a
+ * file recovered from a crashed instance resumes where it stopped, while files of the same
+ * name in different directories get checkpoints of their own. Checkpoints are replaced
+ * atomically and never half written.
+ */
+public class CheckpointStore {
+    // Bytes read from each end of a file for its key
+    private static final int SAMPLE_BYTES = 64 * 1024;
+
+    private final Path dir;
+
+    public CheckpointStore(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+    }
+
+    /** Name of the checkpoint of the file open on {@code channel}. */
+    public String key(FileChannel channel, long modifiedMillis) throws IOException {
+        long size = channel.size();
+        Hasher hasher = ContentIndex.HASH.newHasher().putLong(size).putLong(modifiedMillis);
+        ByteBuffer buf = ByteBuffer.allocate(SAMPLE_BYTES);
+        sample(channel, 0, buf, hasher);
+        if (size > SAMPLE_BYTES) {
+            sample(channel, Math.max(SAMPLE_BYTES, size - SAMPLE_BYTES), buf, hasher);
+        }
+        return hasher.hash() + ".ckpt";
+    }
+
+    /** Returns the saved offset, or 0 when the file has no checkpoint. */
+    public long load(String key) throws IOException {
+        try {
+            return Long.parseLong(Files.readString(dir.resolve(key), StandardCharsets.US_ASCII).trim());
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt checkpoint " + dir.resolve(key), e);
+        }
+    }
+
+    public void save(String key, long offset) throws IOException {
+        Path temp = dir.resolve(key + ".tmp");
+        Files.writeString(temp, Long.toString(offset), StandardCharsets.US_ASCII);
+        Files.move(temp, dir.resolve(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(dir.resolve(key));
+    }
+
+    private static void sample(FileChannel channel, long position, ByteBuffer buf, Hasher hasher) throws IOException {
+        buf.clear();
+        int read;
+        while (buf.hasRemaining() && (read = channel.read(buf, position)) > 0) {
+            position += read;
+        }
+        hasher.putBytes(buf.flip());
+    }
+}
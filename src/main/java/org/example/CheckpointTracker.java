@@ -0,0 +1,96 @@
+package org.example;
+
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how far into a file every record has been acknowledged.
+ * <p>
+ * The input is cut into segments on word boundaries, each counting its unacknowledged records
+ * like {@link FileCompletion} does for the whole file. The watermark is the end of the longest
+ * run of fully acknowledged segments from the start offset, so the file can be resumed there
+ * without losing a word even though acks arrive out of order. Segments of parallel chunks may
+ * be open at the same time; the watermark only moves past a gap once it has been filled.
+ */
+public class CheckpointTracker {
+
+    /** A range of input whose records are sent with this segment as callback. */
+    public class Segment implements Callback {
+        private final long start;
+        private final AtomicLong outstanding = new AtomicLong(1);
+        private volatile long end = -1;
+
+        Segment(long start) {
+            this.start = start;
+        }
+
+        public void beforeSend() {
+            outstanding.incrementAndGet();
+        }
+
+        @Override
+        public void onCompletion(RecordMetadata metadata, Exception exception) {
+            if (exception != null) {
+                failed = true;
+            }
+            completion.onCompletion(metadata, exception);
+            release();
+        }
+
+        /** Ends the segment at {@code end}; no more records are sent for it. */
+        public void close(long end) {
+            this.end = end;
+            release();
+        }
+
+        private void release() {
+            if (outstanding.decrementAndGet() == 0) {
+                advance();
+            }
+        }
+    }
+
+    private final String key;
+    private final FileCompletion completion;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile long watermark;
+    private volatile boolean failed;
+
+    public CheckpointTracker(String key, FileCompletion completion, long startOffset) {
+        this.key = key;
+        this.completion = completion;
+        this.watermark = startOffset;
+    }
+
+    /** Name of the checkpoint in the {@link CheckpointStore}. */
+    public String getKey() {
+        return key;
+    }
+
+    public Segment openSegment(long start) {
+        Segment segment = new Segment(start);
+        segments.put(start, segment);
+        return segment;
+    }
+
+    /** Offset up to which every record has been acknowledged. */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    private synchronized void advance() {
+        // A failed record must be sent again, so the watermark stops in front of it for good
+        while (!failed) {
+            Map.Entry<Long, Segment> first = segments.firstEntry();
+            if (first == null || first.getKey() != watermark || first.getValue().outstanding.get() != 0) {
+                return;
+            }
+            watermark = first.getValue().end;
+            segments.remove(first.getKey());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.example;
+
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Helpers shared by the producer and consumer processes to read their settings and the
+ * metrics of their Kafka clients.
+ */
+final class ClientConfig {
+    private ClientConfig() {
+    }
+
+    static int intValue(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    static long longValue(Properties props, String key, long defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    /** Returns a client metric, or null when the client does not report it (yet). */
+    static Metric findMetric(Map<MetricName, ? extends Metric> metrics, String group, String name) {
+        for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+            MetricName metricName = entry.getKey();
+            if (metricName.name().equals(name) && metricName.group().equals(group)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /** Returns the value of a client metric, or NaN when it is missing or not yet measured. */
+    static double metric(Map<MetricName, ? extends Metric> metrics, String group, String name) {
+        Metric metric = findMetric(metrics, group, name);
+        return metric != null ? value(metric) : Double.NaN;
+    }
+
+    /** Returns the current value of a metric, or NaN when it is not a number. */
+    static double value(Metric metric) {
+        Object value = metric.metricValue();
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression formats accepted as input, recognized by their magic bytes rather than by the
+ * file name.
+ */
+public enum Compression {
+    NONE,
+    GZIP {
+        @Override
+        InputStream decompress(InputStream in) throws IOException {
+            return new GZIPInputStream(in, 64 * 1024);
+        }
+    },
+    ZSTD {
+        @Override
+        InputStream decompress(InputStream in) throws IOException {
+            return new ZstdInputStream(in);
+        }
+    };
+
+    InputStream decompress(InputStream in) throws IOException {
+        return in;
+    }
+
+    /** Looks at the first bytes of a file. */
+    public static Compression detect(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(4);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+            // Short reads are unusual but allowed
+        }
+        if (magic.position() >= 2 && (magic.get(0) & 0xFF) == 0x1F && (magic.get(1) & 0xFF) == 0x8B) {
+            return GZIP;
+        }
+        if (magic.position() == 4 && magic.getInt(0) == 0x28B52FFD) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+}
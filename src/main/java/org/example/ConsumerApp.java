@@ -2,9 +2,21 @@ package org.example;
 
 public class ConsumerApp {
     public static void main(String[] args) {
-        String topic = args[0];
-        String outputFile = args[1];
-        KafkaConsumerService consumerService = new KafkaConsumerService(topic, outputFile);
+        // A topic, a comma separated list of topics or regex:<pattern>
+        String topics = args[0];
+        // With several topics, {topic} in the path is replaced by the topic of each record
+        String outputTemplate = args[1];
+        KafkaConsumerService consumerService = new KafkaConsumerService(topics, outputTemplate, ConsumerSettings.fromSystemProperties());
+        Thread mainThread = Thread.currentThread();
+        // Wait for the consume loop to flush the output before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            consumerService.shutdown();
+            try {
+                mainThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
         consumerService.consume();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package org.example;
+
+import java.util.Properties;
+
+import static org.example.ClientConfig.intValue;
+import static org.example.ClientConfig.longValue;
+
+/**
+ * Tuning knobs of the consumer process, read like {@link ProducerSettings} from a
+ * {@link Properties} source, normally the system properties, e.g.
+ * {@code -Dconsumer.writeBufferBytes=4194304}.
+ */
+public class ConsumerSettings {
+    private final int writeBufferBytes;
+    private final boolean durable;
+    private final int syncEveryRecords;
+    private final long syncIntervalMs;
+    private final String groupId;
+    private final int laneCapacity;
+    private final FetchProfile fetchProfile;
+    private final int catchUpWriteBufferBytes;
+    private final long catchUpLag;
+    private final long caughtUpLag;
+    private final long adaptIntervalMs;
+
+    public ConsumerSettings(Properties props) {
+        this.writeBufferBytes = intValue(props, "consumer.writeBufferBytes", 1024 * 1024);
+        this.durable = Boolean.parseBoolean(props.getProperty("consumer.durable", "false"));
+        this.syncEveryRecords = intValue(props, "consumer.syncEveryRecords", 10_000);
+        this.syncIntervalMs = longValue(props, "consumer.syncIntervalMs", 1_000);
+        this.groupId = props.getProperty("consumer.groupId");
+        this.laneCapacity = intValue(props, "consumer.laneCapacity", 4);
+        this.fetchProfile = FetchProfile.parse(props.getProperty("consumer.fetchProfile", "adaptive"));
+        this.catchUpWriteBufferBytes = intValue(props, "consumer.catchUpWriteBufferBytes", 8 * 1024 * 1024);
+        this.catchUpLag = longValue(props, "consumer.catchUpLag", 100_000);
+        this.caughtUpLag = longValue(props, "consumer.caughtUpLag", 10_000);
+        this.adaptIntervalMs = longValue(props, "consumer.adaptIntervalMs", 5_000);
+    }
+
+    public static ConsumerSettings fromSystemProperties() {
+        return new ConsumerSettings(System.getProperties());
+    }
+
+    /** Size of the buffer output lines are collected in before they are written (outside catch-up). */
+    public int getWriteBufferBytes() {
+        return writeBufferBytes;
+    }
+
+    /** Whether the output is forced to disk before offsets are committed. */
+    public boolean isDurable() {
+        return durable;
+    }
+
+    /** Commit offsets (in durable mode after forcing the output to disk) after at most this many records. */
+    public int getSyncEveryRecords() {
+        return syncEveryRecords;
+    }
+
+    /** Commit offsets (in durable mode after forcing the output to disk) at least this often. */
+    public long getSyncIntervalMs() {
+        return syncIntervalMs;
+    }
+
+    /** Consumer group, or null for one named after the topics. */
+    public String getGroupId() {
+        return groupId;
+    }
+
+    /** Poll batches a partition lane may hold before its partition is paused. */
+    public int getLaneCapacity() {
+        return laneCapacity;
+    }
+
+    /** Preset fetch settings; {@code adaptive} switches poll timeout and write buffers with the lag. */
+    public FetchProfile getFetchProfile() {
+        return fetchProfile;
+    }
+
+    /** Write buffer size while catching up. */
+    public int getCatchUpWriteBufferBytes() {
+        return catchUpWriteBufferBytes;
+    }
+
+    /** Lag, in records, from which an adaptive consumer switches to catch-up. */
+    public long getCatchUpLag() {
+        return catchUpLag;
+    }
+
+    /** Lag under which an adaptive consumer leaves catch-up. */
+    public long getCaughtUpLag() {
+        return caughtUpLag;
+    }
+
+    /** How often an adaptive consumer looks at its lag. */
+    public long getAdaptIntervalMs() {
+        return adaptIntervalMs;
+    }
+}
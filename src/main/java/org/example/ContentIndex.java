@@ -0,0 +1,200 @@
+package org.example;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the content fingerprints of the files already ingested, so a byte-identical file
+ * arriving under another name can be skipped.
+ * <p>
+ * The index is bounded both in entries and in age, and kept on disk as an append-only log of
+ * {@code <hash> <size> <millis>} lines that is rewritten once it holds twice as many lines as
+ * the index has entries. Sizes are indexed too: content of a size never seen cannot be a
+ * duplicate, so most new files are ruled out without hashing them first.
+ */
+public class ContentIndex {
+    /** Fingerprint function: fast, not cryptographic, wide enough that collisions do not matter. */
+    public static final HashFunction HASH = Hashing.murmur3_128();
+
+    private static class Entry {
+        final long size;
+        final long recordedMillis;
+
+        Entry(long size, long recordedMillis) {
+            this.size = size;
+            this.recordedMillis = recordedMillis;
+        }
+    }
+
+    private final Path file;
+    private final int maxEntries;
+    private final long retentionMs;
+    // In recording order, so the oldest entries are evicted first
+    private final LinkedHashMap<HashCode, Entry> entries = new LinkedHashMap<>();
+    private final Map<Long, Integer> sizes = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private int logLines;
+
+    public ContentIndex(Path file, int maxEntries, long retentionMs) throws IOException {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        this.retentionMs = retentionMs;
+        if (Files.exists(file)) {
+            load();
+        } else if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+    }
+
+    /**
+     * Whether content of this size has been ingested, i.e. whether a file of this size is worth
+     * hashing before it is sent. A file ruled out here counts as a miss.
+     */
+    public synchronized boolean mayContain(long size) {
+        evictExpired(System.currentTimeMillis());
+        if (sizes.containsKey(size)) {
+            return true;
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+
+    /** Whether this content has been ingested; counts a hit or a miss. */
+    public synchronized boolean contains(HashCode hash) {
+        evictExpired(System.currentTimeMillis());
+        if (entries.containsKey(hash)) {
+            hits.incrementAndGet();
+            return true;
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+
+    /** Adds the content of a fully ingested file. */
+    public synchronized void record(HashCode hash, long size) throws IOException {
+        long now = System.currentTimeMillis();
+        if (entries.containsKey(hash)) {
+            return;
+        }
+        put(hash, new Entry(size, now));
+        evictExpired(now);
+        evictOverflow();
+        if (logLines >= 2 * maxEntries) {
+            compact();
+        } else {
+            try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.US_ASCII,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write(line(hash, entries.get(hash)));
+            }
+            logLines++;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return "content index " + size() + " entries, " + hits.get() + " hits, " + misses.get() + " misses";
+    }
+
+    private void load() throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        for (String line : lines) {
+            String[] fields = line.split(" ");
+            if (fields.length != 3) {
+                continue;  // Torn last line after a crash
+            }
+            try {
+                put(HashCode.fromString(fields[0]), new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+            } catch (IllegalArgumentException e) {
+                // Same as a torn line
+            }
+        }
+        evictExpired(System.currentTimeMillis());
+        evictOverflow();
+        compact();
+    }
+
+    /** Rewrites the log with only the live entries. */
+    private void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.US_ASCII)) {
+            for (Map.Entry<HashCode, Entry> entry : entries.entrySet()) {
+                out.write(line(entry.getKey(), entry.getValue()));
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logLines = entries.size();
+    }
+
+    private void evictExpired(long now) {
+        if (retentionMs <= 0) {
+            return;
+        }
+        Iterator<Map.Entry<HashCode, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<HashCode, Entry> oldest = it.next();
+            if (now - oldest.getValue().recordedMillis < retentionMs) {
+                return;
+            }
+            it.remove();
+            uncount(oldest.getValue().size);
+        }
+    }
+
+    private void evictOverflow() {
+        while (entries.size() > maxEntries) {
+            remove(entries.keySet().iterator().next());
+        }
+    }
+
+    private void put(HashCode hash, Entry entry) {
+        Entry previous = entries.remove(hash);
+        if (previous != null) {
+            uncount(previous.size);
+        }
+        entries.put(hash, entry);
+        sizes.merge(entry.size, 1, Integer::sum);
+    }
+
+    private void remove(HashCode hash) {
+        Entry entry = entries.remove(hash);
+        if (entry != null) {
+            uncount(entry.size);
+        }
+    }
+
+    private void uncount(long size) {
+        sizes.computeIfPresent(size, (ignored, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private static String line(HashCode hash, Entry entry) {
+        return hash + " " + entry.size + " " + entry.recordedMillis + "\n";
+    }
+}
@@ -0,0 +1,92 @@
+package org.example;
+
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.OptionalLong;
+
+/**
+ * Switches an adaptive consumer between the {@link FetchProfile#CATCH_UP} and
+ * {@link FetchProfile#LOW_LATENCY} poll timeouts and write buffer sizes from its lag, the
+ * records between its position and the end of its assigned partitions.
+ * <p>
+ * The {@code KafkaConsumer} fetch settings are fixed once it is created, so the controller only
+ * tunes what the application controls. Catch-up starts once the lag reaches the catch-up level
+ * and ends only when it is back under the caught-up level, so the mode does not flap. Runs on
+ * the polling thread, like every other use of the consumer.
+ */
+public class FetchController {
+    private static final Logger log = LoggerFactory.getLogger(FetchController.class);
+
+    private final KafkaConsumer<?, ?> consumer;
+    private final OutputFiles outputs;
+    private final long catchUpLag;
+    private final long caughtUpLag;
+    private final int catchUpBufferBytes;
+    private final int lowLatencyBufferBytes;
+    private final long intervalMillis;
+    private FetchProfile profile = FetchProfile.LOW_LATENCY;
+    private long lastCheckMillis;
+
+    public FetchController(KafkaConsumer<?, ?> consumer, OutputFiles outputs, ConsumerSettings settings) {
+        this.consumer = consumer;
+        this.outputs = outputs;
+        this.catchUpLag = settings.getCatchUpLag();
+        this.caughtUpLag = settings.getCaughtUpLag();
+        this.catchUpBufferBytes = settings.getCatchUpWriteBufferBytes();
+        this.lowLatencyBufferBytes = settings.getWriteBufferBytes();
+        this.intervalMillis = settings.getAdaptIntervalMs();
+    }
+
+    /** The profile whose poll timeout and write buffers are in use. */
+    public FetchProfile getProfile() {
+        return profile;
+    }
+
+    /** Looks at the lag if the adapt interval has passed, and switches profile if needed. */
+    public void maybeAdapt() {
+        long now = System.currentTimeMillis();
+        if (now - lastCheckMillis < intervalMillis) {
+            return;
+        }
+        lastCheckMillis = now;
+        long lag = lag();
+        if (lag < 0) {
+            return;
+        }
+        FetchProfile next = profile;
+        if (profile != FetchProfile.CATCH_UP && lag >= catchUpLag) {
+            next = FetchProfile.CATCH_UP;
+        } else if (profile == FetchProfile.CATCH_UP && lag < caughtUpLag) {
+            next = FetchProfile.LOW_LATENCY;
+        }
+        if (next != profile) {
+            log.info("Consumer lag {} records, switching to {}", lag, next);
+            profile = next;
+            outputs.setBufferBytes(next == FetchProfile.CATCH_UP ? catchUpBufferBytes : lowLatencyBufferBytes);
+        }
+    }
+
+    /**
+     * Total lag of the assigned partitions the consumer knows it for, falling back to the
+     * largest partition lag of the last fetch; -1 when neither is known yet.
+     */
+    private long lag() {
+        long total = 0;
+        boolean known = false;
+        for (TopicPartition partition : consumer.assignment()) {
+            OptionalLong lag = consumer.currentLag(partition);
+            if (lag.isPresent()) {
+                total += lag.getAsLong();
+                known = true;
+            }
+        }
+        if (known) {
+            return total;
+        }
+        double maxLag = ClientConfig.metric(consumer.metrics(), "consumer-fetch-manager-metrics", "records-lag-max");
+        return Double.isNaN(maxLag) ? -1 : (long) maxLag;
+    }
+}
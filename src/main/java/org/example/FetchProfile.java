@@ -0,0 +1,67 @@
+package org.example;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Preset fetch settings for the {@code KafkaConsumer}, with the poll timeout that goes with
+ * them. Fetch settings are fixed once the consumer is created; {@link FetchController} switches
+ * an adaptive consumer between the poll timeouts and write buffers of the two fixed profiles.
+ */
+public enum FetchProfile {
+    /** Few, large fetches for a consumer far behind the end of its partitions. */
+    CATCH_UP(Duration.ofMillis(50)) {
+        @Override
+        void applyTo(Properties props) {
+            props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, String.valueOf(1024 * 1024));
+            props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, "500");
+            props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "10000");
+            props.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, String.valueOf(8 * 1024 * 1024));
+        }
+    },
+    /** Records handed over as soon as they arrive, in small batches. */
+    LOW_LATENCY(Duration.ofMillis(500)) {
+        @Override
+        void applyTo(Properties props) {
+            props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, "1");
+            props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, "100");
+            props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "500");
+        }
+    },
+    /**
+     * Batches as large as catch-up allows, but without the broker holding replies back while
+     * little data is waiting; the rest is adapted at runtime from the consumer lag.
+     */
+    ADAPTIVE(Duration.ofMillis(500)) {
+        @Override
+        void applyTo(Properties props) {
+            CATCH_UP.applyTo(props);
+            props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, "1");
+            props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, "100");
+        }
+    };
+
+    private final Duration pollTimeout;
+
+    FetchProfile(Duration pollTimeout) {
+        this.pollTimeout = pollTimeout;
+    }
+
+    abstract void applyTo(Properties props);
+
+    /**
+     * How long a poll waits for records. Short while catching up, when records are always there,
+     * so commits and paused partitions are looked after often; long when idle, so the consumer
+     * does not spin (a poll returns as soon as records arrive anyway).
+     */
+    public Duration getPollTimeout() {
+        return pollTimeout;
+    }
+
+    public static FetchProfile parse(String name) {
+        return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,207 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lets several producer instances share a watched directory without sending a file twice.
+ * <p>
+ * Before a file is processed it is claimed by atomically renaming it into
+ * {@code processing/<instance id>/} next to it; only one instance can win the rename. Each
+ * instance touches a {@code .heartbeat} file in its claim directories while it runs. The
+ * claim directory of an instance whose heartbeat is older than the timeout is taken over by
+ * renaming it once more, and its files are moved back into the watched directory, where they
+ * are picked up as new files.
+ */
+public class FileClaimer {
+    private static final Logger log = LoggerFactory.getLogger(FileClaimer.class);
+
+    public static final String CLAIM_DIR = "processing";
+    private static final String HEARTBEAT = ".heartbeat";
+    private static final String RECOVERING_PREFIX = ".recovering-";
+
+    private final String instanceId;
+    private final long timeoutMillis;
+    private final Set<Path> ownClaimDirs = ConcurrentHashMap.newKeySet();
+
+    public FileClaimer(String instanceId, long timeoutMillis) {
+        this.instanceId = instanceId;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Moves a file into this instance's claim directory.
+     *
+     * @return the claimed location, or null if another instance claimed the file first
+     */
+    public Path claim(Path filePath) throws IOException {
+        Path claimDir = filePath.resolveSibling(CLAIM_DIR).resolve(instanceId);
+        if (ownClaimDirs.add(claimDir)) {
+            Files.createDirectories(claimDir);
+            touch(claimDir.resolve(HEARTBEAT));
+        }
+        Path target = claimDir.resolve(filePath.getFileName());
+        if (Files.exists(target)) {
+            // A file of the same name is still being sent; rename would silently replace it
+            target = claimDir.resolve(filePath.getFileName() + "." + System.nanoTime());
+        }
+        try {
+            return Files.move(filePath, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gives a claimed file back to its watched directory so it is processed again.
+     *
+     * @return where the file was moved back to, or null if it could not be moved
+     */
+    public Path release(Path claimed) {
+        Path watchedDir = claimed.getParent().getParent().getParent();
+        try {
+            return moveBack(claimed, watchedDir);
+        } catch (IOException e) {
+            log.error("Could not release claim on {}", claimed, e);
+            return null;
+        }
+    }
+
+    /** Refreshes the heartbeat of every claim directory of this instance. */
+    public void heartbeat() {
+        for (Path claimDir : ownClaimDirs) {
+            try {
+                touch(claimDir.resolve(HEARTBEAT));
+            } catch (IOException e) {
+                log.warn("Could not refresh heartbeat in {}", claimDir, e);
+            }
+        }
+    }
+
+    /**
+     * Takes over the claims of instances in {@code watchedDir} whose heartbeat has expired and
+     * moves their files back into {@code watchedDir}.
+     *
+     * @return the number of files recovered
+     */
+    public int recoverOrphans(Path watchedDir) {
+        return recoverClaims(watchedDir, claimDir -> !isOwn(claimDir) && isExpired(claimDir));
+    }
+
+    /**
+     * Moves back into {@code watchedDir} the files this instance had claimed there before it
+     * was restarted, including those of recoveries it had started; the heartbeat of its claim
+     * directory may not have expired yet, and with a fixed instance id nobody else would take
+     * them over. Must run before this instance claims anything in {@code watchedDir}.
+     *
+     * @return the number of files recovered
+     */
+    public int recoverOwn(Path watchedDir) {
+        return recoverClaims(watchedDir, this::isOwn);
+    }
+
+    /** Whether {@code path}, found below {@code root}, lies inside a claim directory. */
+    public static boolean isClaimed(Path root, Path path) {
+        for (Path name : root.relativize(path)) {
+            if (name.toString().equals(CLAIM_DIR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private interface ClaimDirFilter {
+        boolean test(Path claimDir) throws IOException;
+    }
+
+    private int recoverClaims(Path watchedDir, ClaimDirFilter filter) {
+        Path claimRoot = watchedDir.resolve(CLAIM_DIR);
+        if (!Files.isDirectory(claimRoot)) {
+            return 0;
+        }
+        int recovered = 0;
+        try (DirectoryStream<Path> claimDirs = Files.newDirectoryStream(claimRoot, Files::isDirectory)) {
+            for (Path claimDir : claimDirs) {
+                if (filter.test(claimDir)) {
+                    recovered += recover(claimDir, watchedDir);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not look for orphaned claims in {}", claimRoot, e);
+        }
+        return recovered;
+    }
+
+    /** Whether a claim directory is this instance's own, or one it was recovering. */
+    private boolean isOwn(Path claimDir) {
+        String name = claimDir.getFileName().toString();
+        return name.equals(instanceId) || (name.startsWith(RECOVERING_PREFIX) && name.endsWith("-" + instanceId));
+    }
+
+    private boolean isExpired(Path claimDir) throws IOException {
+        Path heartbeat = claimDir.resolve(HEARTBEAT);
+        Path probe = Files.exists(heartbeat) ? heartbeat : claimDir;
+        long age = System.currentTimeMillis() - Files.getLastModifiedTime(probe).toMillis();
+        return age > timeoutMillis;
+    }
+
+    private int recover(Path claimDir, Path watchedDir) throws IOException {
+        String owner = claimDir.getFileName().toString();
+        if (owner.startsWith(RECOVERING_PREFIX)) {
+            // Left behind by an instance that died while recovering
+            owner = owner.substring(RECOVERING_PREFIX.length());
+        }
+        Path recovering = claimDir.resolveSibling(RECOVERING_PREFIX + owner + "-" + instanceId);
+        try {
+            Files.move(claimDir, recovering, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException | FileAlreadyExistsException | DirectoryNotEmptyException | AccessDeniedException e) {
+            return 0;  // Another instance is recovering it
+        }
+        int recovered = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(recovering)) {
+            for (Path filePath : files) {
+                if (!filePath.getFileName().toString().equals(HEARTBEAT)) {
+                    moveBack(filePath, watchedDir);
+                    recovered++;
+                }
+            }
+        }
+        Files.deleteIfExists(recovering.resolve(HEARTBEAT));
+        Files.delete(recovering);
+        log.info("Recovered {} files claimed by {} in {}", recovered, owner, watchedDir);
+        return recovered;
+    }
+
+    private static Path moveBack(Path filePath, Path watchedDir) throws IOException {
+        Path target = watchedDir.resolve(filePath.getFileName());
+        if (Files.exists(target)) {
+            target = watchedDir.resolve(filePath.getFileName() + "." + System.nanoTime());
+        }
+        return Files.move(filePath, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void touch(Path file) throws IOException {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            Files.createFile(file);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.example;
+
+import com.google.common.hash.HashCode;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counts the records of one file that are still waiting for an acknowledgement.
+ * <p>
+ * The instance itself is the send callback of every record of the file, so tracking costs no
+ * allocation per record. The count starts at one on behalf of the sending side, which
+ * {@link #seal()} releases once the last record has been handed to the producer; the
+ * {@link #future()} completes when the count drops to zero, exceptionally if any record or the
+ * reading of the file failed.
+ */
+public class FileCompletion implements Callback {
+    private final Path file;
+    private final AtomicLong outstanding = new AtomicLong(1);
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private volatile CheckpointTracker checkpoint;
+    private volatile HashCode fingerprint;
+    private volatile boolean duplicate;
+
+    public FileCompletion(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /** Registers a record about to be sent with this completion as its callback. */
+    public void beforeSend() {
+        outstanding.incrementAndGet();
+    }
+
+    @Override
+    public void onCompletion(RecordMetadata metadata, Exception exception) {
+        if (exception != null) {
+            fail(exception);
+        }
+        release();
+    }
+
+    /** Marks the file as failed; it completes once the records already sent are settled. */
+    public void fail(Exception exception) {
+        failure.compareAndSet(null, exception);
+    }
+
+    /** Signals that no more records will be sent for this file. */
+    public void seal() {
+        release();
+    }
+
+    /** Acknowledged offset tracking of the file, or null when checkpoints are disabled. */
+    public CheckpointTracker getCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(CheckpointTracker checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /** Content fingerprint of the file, or null when deduplication is disabled. */
+    public HashCode getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(HashCode fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /** Whether the file was skipped because its content had already been ingested. */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    public void markDuplicate() {
+        this.duplicate = true;
+    }
+
+    public CompletableFuture<Void> future() {
+        return future;
+    }
+
+    private void release() {
+        if (outstanding.decrementAndGet() == 0) {
+            Exception exception = failure.get();
+            if (exception == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(exception);
+            }
+        }
+    }
+}
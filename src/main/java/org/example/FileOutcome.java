@@ -0,0 +1,16 @@
+package org.example;
+
+/**
+ * How {@link KafkaProducerService#processFile} ended for a file.
+ */
+public enum FileOutcome {
+    /** Every word was acknowledged and the file deleted or archived; also a skipped duplicate. */
+    DONE,
+    /** Not every word was acknowledged; the file is still in place and must be sent again. */
+    FAILED,
+    /**
+     * Every word was acknowledged but the file could not be deleted or archived; sending it
+     * again would duplicate it, only {@link KafkaProducerService#removeFile} should be retried.
+     */
+    UNREMOVED
+}
@@ -0,0 +1,115 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Holds new files back until their writer is done with them.
+ * <p>
+ * {@code ENTRY_CREATE} fires as soon as a file is created, not when it is complete. A tracked
+ * file is passed on only once its size and modification time have stayed the same for the
+ * settle time; checks run on a {@link TimerWheel}. Files named with the temporary suffix are
+ * ignored altogether: writers that create {@code name.tmp} and rename it when done produce a
+ * new event for the final name.
+ */
+public class FileSettler {
+    private static final Logger log = LoggerFactory.getLogger(FileSettler.class);
+
+    private static final class Observation {
+        long size;
+        long modified;
+
+        Observation(BasicFileAttributes attributes) {
+            update(attributes);
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && modified == attributes.lastModifiedTime().toMillis();
+        }
+
+        void update(BasicFileAttributes attributes) {
+            size = attributes.size();
+            modified = attributes.lastModifiedTime().toMillis();
+        }
+    }
+
+    private final long settleMillis;
+    private final String tempSuffix;
+    private final Consumer<Path> onSettled;
+    private final Map<Path, Observation> tracked = new ConcurrentHashMap<>();
+    private final TimerWheel<Path> wheel;
+
+    public FileSettler(long settleMillis, String tempSuffix, Consumer<Path> onSettled) {
+        this.settleMillis = settleMillis;
+        this.tempSuffix = tempSuffix;
+        this.onSettled = onSettled;
+        this.wheel = settleMillis > 0
+                ? new TimerWheel<>("file-settler", Math.max(10, settleMillis / 10), 512, this::check)
+                : null;
+    }
+
+    /** Starts watching a new or modified file; a file already being watched is left as is. */
+    public void track(Path filePath) {
+        if (!tempSuffix.isEmpty() && filePath.getFileName().toString().endsWith(tempSuffix)) {
+            return;
+        }
+        if (wheel == null) {
+            onSettled.accept(filePath);
+            return;
+        }
+        if (tracked.containsKey(filePath)) {
+            return;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            if (attributes.isRegularFile() && tracked.putIfAbsent(filePath, new Observation(attributes)) == null) {
+                wheel.schedule(filePath, settleMillis);
+            }
+        } catch (NoSuchFileException e) {
+            // Already gone, e.g. a temporary file renamed right away
+        } catch (IOException e) {
+            log.warn("Cannot read attributes of {}", filePath, e);
+        }
+    }
+
+    public int getTrackedFiles() {
+        return tracked.size();
+    }
+
+    public void close() {
+        if (wheel != null) {
+            wheel.close();
+        }
+    }
+
+    private void check(Path filePath) {
+        Observation observation = tracked.get(filePath);
+        if (observation == null) {
+            return;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            if (observation.matches(attributes)) {
+                tracked.remove(filePath);
+                onSettled.accept(filePath);
+            } else {
+                observation.update(attributes);
+                wheel.schedule(filePath, settleMillis);
+            }
+        } catch (NoSuchFileException e) {
+            tracked.remove(filePath);
+        } catch (IOException e) {
+            tracked.remove(filePath);
+            log.warn("Cannot read attributes of {}", filePath, e);
+        }
+    }
+}
@@ -1,33 +1,474 @@
 package org.example;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Watches one or more directories, optionally with their whole subtrees, on a single
+ * WatchService and hands the files that appear in them to one shared producer.
+ * <p>
+ * Events can be lost when the kernel event queue overflows; an {@code OVERFLOW} event makes
+ * the watcher rescan the affected directory, and an optional periodic rescan of every root
+ * catches anything missed otherwise. Rescans only pick up files not already being handled.
+ * <p>
+ * With claiming enabled every file is claimed through a {@link FileClaimer} before it is sent,
+ * and given back if it could not be sent, so several instances can watch the same directories.
+ * <p>
+ * A file that could not be sent is retried after a backoff that doubles with every attempt,
+ * and moved to a {@code failed} directory next to it once it has used up its attempts.
+ * <p>
+ * Settled files wait in a bounded queue for a dispatcher thread, which holds them back while
+ * the producer reports {@link Backpressure}. If that queue fills up, further files are left
+ * where they are and a rescan picks them up once the queue has drained.
+ */
 public class FileWatcher {
-    private final Path dir;
+    private static final Logger log = LoggerFactory.getLogger(FileWatcher.class);
+
+    private static final long BACKPRESSURE_POLL_MILLIS = 50;
+
+    /** Directory, next to a file, that a file failing every attempt is moved to. */
+    public static final String FAILED_DIR = "failed";
+
+    private final List<Path> roots;
+    private final boolean recursive;
     private final KafkaProducerService producerService;
+    // Watched directory of every registered key, to resolve the relative paths of its events
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    // Files queued or handed to the producer and not finished yet, so a file seen twice is sent once
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<Path> pending;
+    private final Backpressure backpressure;
+    private final long gaugeIntervalMs;
+    private volatile boolean pendingOverflow;
+    // Directories with a rescan queued and not started yet, so overflow bursts rescan once
+    private final Set<Path> pendingRescans = ConcurrentHashMap.newKeySet();
+    private final FileSettler settler;
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+    private final ScheduledExecutorService rescanner;
+    // Heartbeat on a thread of its own, so a long scan cannot let other instances take over live claims
+    private final ScheduledExecutorService claimKeeper;
+    private final long rescanIntervalMs;
+    private final FileClaimer claimer;
+    private final long claimHeartbeatMs;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    // Failed attempts of the files waiting to be sent again, by their path in the watched directory
+    private final Map<Path, Integer> failures = new ConcurrentHashMap<>();
+    private WatchService watchService;
 
-    public FileWatcher(String dir, KafkaProducerService producerService) {
-        this.dir = Paths.get(dir);
+    public FileWatcher(List<String> dirs, KafkaProducerService producerService, ProducerSettings settings) {
+        this.roots = dirs.stream().map(Paths::get).collect(Collectors.toList());
+        this.recursive = settings.isRecursive();
         this.producerService = producerService;
+        this.settler = new FileSettler(settings.getSettleMillis(), settings.getTempSuffix(), this::dispatch);
+        this.includes = globs(settings.getInclude());
+        this.excludes = globs(settings.getExclude());
+        this.rescanIntervalMs = settings.getRescanIntervalMs();
+        this.claimer = settings.isClaimFiles()
+                ? new FileClaimer(settings.getInstanceId(), settings.getClaimTimeoutMs())
+                : null;
+        this.claimHeartbeatMs = settings.getClaimHeartbeatMs();
+        this.maxAttempts = settings.getMaxAttempts();
+        this.retryBackoffMs = settings.getRetryBackoffMs();
+        this.pending = new LinkedBlockingQueue<>(settings.getPendingCapacity());
+        this.backpressure = producerService.getBackpressure();
+        this.gaugeIntervalMs = settings.getGaugeIntervalMs();
+        this.rescanner = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "watch-rescan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.claimKeeper = claimer == null ? null : Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "claim-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public void watch() {
         try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
-            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
-            while (true) {
+            this.watchService = watchService;
+            for (Path root : roots) {
+                register(root);
+            }
+            // Registered first, so files created while the backlog is scanned are not missed
+            if (claimer != null) {
+                log.info("Claiming files as {}", claimer.getInstanceId());
+                recoverOwnClaims();
+                claimKeeper.scheduleWithFixedDelay(this::maintainClaims, 0, claimHeartbeatMs, TimeUnit.MILLISECONDS);
+            }
+            rescanner.execute(this::scanBacklog);
+            if (rescanIntervalMs > 0) {
+                rescanner.scheduleWithFixedDelay(this::rescanRoots, rescanIntervalMs, rescanIntervalMs, TimeUnit.MILLISECONDS);
+            }
+            if (gaugeIntervalMs > 0) {
+                rescanner.scheduleWithFixedDelay(this::logGauges, gaugeIntervalMs, gaugeIntervalMs, TimeUnit.MILLISECONDS);
+            }
+            Thread dispatcher = new Thread(this::dispatchPending, "file-dispatcher");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+            while (!watchedDirs.isEmpty()) {
                 WatchKey key = watchService.take();
+                Path dir = watchedDirs.get(key);
                 for (WatchEvent<?> event : key.pollEvents()) {
                     WatchEvent.Kind<?> kind = event.kind();
-                    if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
-                        Path filePath = dir.resolve((Path) event.context());
-                        producerService.processFile(filePath);
+                    if (dir != null && kind == StandardWatchEventKinds.OVERFLOW) {
+                        log.warn("Events lost in {}, rescanning it", dir);
+                        requestRescan(dir);
+                    } else if (dir != null && (kind == StandardWatchEventKinds.ENTRY_CREATE || kind == StandardWatchEventKinds.ENTRY_MODIFY)) {
+                        Path path = dir.resolve((Path) event.context());
+                        if (recursive && kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                            if (!isExcluded(dir, path)) {
+                                watchNewDirectory(path);
+                            }
+                        } else if (isWanted(path)) {
+                            settler.track(path);
+                        }
                     }
                 }
-                key.reset();
+                if (!key.reset()) {
+                    watchedDirs.remove(key);
+                    log.info("No longer watching {}", dir);
+                }
+            }
+            log.warn("All watched directories are gone");
+        } catch (IOException | UncheckedIOException | InterruptedException e) {
+            log.error("Stopped watching {}", roots, e);
+        } finally {
+            rescanner.shutdownNow();
+            if (claimKeeper != null) {
+                claimKeeper.shutdownNow();
+            }
+            settler.close();
+        }
+    }
+
+    /**
+     * Starts watching a directory created below a root, and picks up whatever was written
+     * into it before it was registered.
+     */
+    private void watchNewDirectory(Path dir) {
+        try {
+            register(dir);
+            scan(dir);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Could not watch new directory {}", dir, e);
+        }
+    }
+
+    /**
+     * Registers a directory, and in recursive mode every directory below it. Registering a
+     * directory again is harmless, it keeps its key.
+     */
+    private void register(Path dir) throws IOException {
+        if (!recursive) {
+            watchedDirs.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY), dir);
+            return;
+        }
+        try (Stream<Path> tree = Files.walk(dir)) {
+            for (Path subdir : (Iterable<Path>) tree.filter(path -> Files.isDirectory(path) && !isExcluded(dir, path))::iterator) {
+                watchedDirs.put(subdir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY), subdir);
+            }
+        }
+    }
+
+    /**
+     * Hands the files already in the watched directories to the producer, e.g. files that
+     * arrived while the producer was down.
+     */
+    private void scanBacklog() {
+        for (Path root : roots) {
+            try {
+                log.info("Found {} files in {} at startup", scan(root), root);
+            } catch (IOException | UncheckedIOException e) {
+                log.error("Could not scan {} for existing files", root, e);
+            }
+        }
+    }
+
+    private void rescanRoots() {
+        for (Path root : roots) {
+            requestRescan(root);
+        }
+    }
+
+    private void requestRescan(Path dir) {
+        if (pendingRescans.add(dir)) {
+            rescanner.execute(() -> rescan(dir));
+        }
+    }
+
+    /**
+     * Picks up files of a directory whose events may have been lost. In recursive mode
+     * subdirectories created meanwhile are registered too.
+     */
+    private void rescan(Path dir) {
+        pendingRescans.remove(dir);
+        try {
+            if (recursive) {
+                register(dir);
+            }
+            int found = scan(dir);
+            if (found > 0) {
+                log.info("Rescan of {} found {} new files", dir, found);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Could not rescan {}", dir, e);
+        }
+    }
+
+    /**
+     * Tracks the files of a directory that are not already being sent.
+     *
+     * @return the number of such files
+     */
+    private int scan(Path dir) throws IOException {
+        try (Stream<Path> files = recursive ? Files.walk(dir) : Files.list(dir)) {
+            int found = 0;
+            for (Path filePath : (Iterable<Path>) files.filter(path -> Files.isRegularFile(path) && !isExcluded(dir, path))::iterator) {
+                if (!inFlight.contains(filePath) && isWanted(filePath)) {
+                    settler.track(filePath);
+                    found++;
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Gives back whatever this instance had claimed before a restart, before the backlog scan
+     * so that it picks those files up again.
+     */
+    private void recoverOwnClaims() {
+        for (Path dir : new HashSet<>(watchedDirs.values())) {
+            claimer.recoverOwn(dir);
+        }
+    }
+
+    private void maintainClaims() {
+        claimer.heartbeat();
+        for (Path dir : new HashSet<>(watchedDirs.values())) {
+            claimer.recoverOrphans(dir);
+        }
+    }
+
+    /** Claim and failed directories are internal to the watcher and never watched or scanned. */
+    private boolean isExcluded(Path base, Path path) {
+        for (Path name : base.relativize(path)) {
+            if (name.toString().equals(FAILED_DIR)) {
+                return true;
+            }
+        }
+        return claimer != null && FileClaimer.isClaimed(base, path);
+    }
+
+    /** Whether the file name passes the include and exclude globs. */
+    private boolean isWanted(Path filePath) {
+        Path name = filePath.getFileName();
+        if (!includes.isEmpty() && includes.stream().noneMatch(glob -> glob.matches(name))) {
+            return false;
+        }
+        return excludes.stream().noneMatch(glob -> glob.matches(name));
+    }
+
+    private static List<PathMatcher> globs(String patterns) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        for (String pattern : patterns.split(",")) {
+            if (!pattern.isBlank()) {
+                matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern.trim()));
+            }
+        }
+        return matchers;
+    }
+
+    private void logGauges() {
+        log.info("Pipeline: {} settling, {} waiting for dispatch, {} in flight; {}",
+                settler.getTrackedFiles(), pending.size(), inFlight.size(), backpressure);
+        if (producerService.getContentIndex() != null) {
+            log.info("Deduplication: {}", producerService.getContentIndex());
+        }
+    }
+
+    /** Queues a settled file for the dispatcher. */
+    private void dispatch(Path filePath) {
+        if (!Files.isRegularFile(filePath) || !inFlight.add(filePath)) {
+            return;
+        }
+        if (!pending.offer(filePath)) {
+            inFlight.remove(filePath);
+            if (!pendingOverflow) {
+                log.warn("Dispatch queue full, leaving new files for a rescan");
+                pendingOverflow = true;
+            }
+        }
+    }
+
+    private void dispatchPending() {
+        try {
+            while (true) {
+                Path filePath = pending.take();
+                while (backpressure.isSaturated()) {
+                    Thread.sleep(BACKPRESSURE_POLL_MILLIS);
+                }
+                try {
+                    send(filePath);
+                } catch (RuntimeException e) {
+                    log.error("Could not dispatch {}", filePath, e);
+                    inFlight.remove(filePath);
+                }
+                if (pendingOverflow && pending.isEmpty()) {
+                    pendingOverflow = false;
+                    rescanRoots();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(Path filePath) {
+        int attempt = failures.getOrDefault(filePath, 0) + 1;
+        if (claimer == null) {
+            producerService.processFile(filePath).whenComplete((outcome, error) -> {
+                if (outcome == FileOutcome.DONE) {
+                    failures.remove(filePath);
+                    inFlight.remove(filePath);
+                } else if (outcome == FileOutcome.UNREMOVED) {
+                    // Stays in flight until it is gone, so rescans do not send it again
+                    failures.remove(filePath);
+                    retryRemoval(filePath, filePath, 1);
+                } else {
+                    // Stays in flight until the retry, so rescans leave it alone
+                    retryLater(filePath, filePath, attempt);
+                }
+            });
+            return;
+        }
+        Path claimed;
+        try {
+            claimed = claimer.claim(filePath);
+        } catch (IOException e) {
+            log.error("Could not claim {}", filePath, e);
+            claimed = null;
+        } finally {
+            // Once renamed the file is out of the watched directory, the claim itself prevents duplicates
+            inFlight.remove(filePath);
+            failures.remove(filePath);
+        }
+        if (claimed == null) {
+            return;
+        }
+        Path claimedPath = claimed;
+        producerService.processFile(claimedPath).whenComplete((outcome, error) -> {
+            if (outcome == FileOutcome.UNREMOVED) {
+                retryRemoval(filePath, claimedPath, 1);
+            } else if (outcome != FileOutcome.DONE) {
+                // Stays claimed until the retry
+                retryLater(filePath, claimedPath, attempt);
+            }
+        });
+    }
+
+    /**
+     * Schedules another attempt at a file that could not be sent, or moves it to the failed
+     * directory once it has failed {@code maxAttempts} times.
+     *
+     * @param filePath where the file was found in the watched directory
+     * @param current where the file is now, i.e. its claimed location when claiming
+     */
+    private void retryLater(Path filePath, Path current, int attempt) {
+        failures.remove(filePath);
+        if (maxAttempts > 0 && attempt >= maxAttempts) {
+            quarantine(filePath, current, attempt);
+            inFlight.remove(filePath);
+            return;
+        }
+        long delay = backoff(attempt);
+        log.warn("Could not send {} (attempt {}), retrying in {} ms", filePath, attempt, delay);
+        try {
+            rescanner.schedule(() -> retry(filePath, current, attempt), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; a claimed file is recovered by another instance or at restart
+            inFlight.remove(filePath);
+        }
+    }
+
+    private void retry(Path filePath, Path current, int attempt) {
+        if (claimer == null) {
+            if (Files.isRegularFile(filePath)) {
+                failures.put(filePath, attempt);
+            }
+            inFlight.remove(filePath);
+            dispatch(filePath);
+            return;
+        }
+        // Picked up again, by this or another instance, as a new file in the watched directory
+        Path released = claimer.release(current);
+        if (released != null) {
+            failures.put(released, attempt);
+        }
+    }
+
+    /**
+     * Schedules another attempt at removing a file whose words were all delivered. Only the
+     * removal is retried: sending the file again would duplicate every word. A file that still
+     * cannot be removed after {@code maxAttempts} is left where it is, and never sent again by
+     * this instance.
+     */
+    private void retryRemoval(Path filePath, Path current, int attempt) {
+        long delay = backoff(attempt);
+        try {
+            rescanner.schedule(() -> {
+                if (producerService.removeFile(current)) {
+                    inFlight.remove(filePath);
+                } else if (maxAttempts > 0 && attempt >= maxAttempts) {
+                    log.error("Giving up removing {} after {} attempts; its words were delivered, remove it by hand",
+                            current, attempt);
+                } else {
+                    retryRemoval(filePath, current, attempt + 1);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    /** Wait before the given attempt's retry, doubling with every attempt. */
+    private long backoff(int attempt) {
+        return retryBackoffMs << Math.min(attempt - 1, 16);
+    }
+
+    private void quarantine(Path filePath, Path current, int attempts) {
+        Path failedDir = filePath.resolveSibling(FAILED_DIR);
+        try {
+            Files.createDirectories(failedDir);
+            Path target = failedDir.resolve(current.getFileName());
+            if (Files.exists(target)) {
+                target = failedDir.resolve(current.getFileName() + "." + System.nanoTime());
             }
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
+            Files.move(current, target, StandardCopyOption.ATOMIC_MOVE);
+            log.error("Giving up on {} after {} attempts, moved it to {}", filePath, attempts, target);
+        } catch (IOException e) {
+            log.error("Could not move {} to {} after {} failed attempts", current, failedDir, attempts, e);
         }
     }
 }
@@ -1,44 +1,268 @@
 package org.example;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.regex.Pattern;
 
+/**
+ * Consumes words from one or more topics and appends them to an output file per topic.
+ * <p>
+ * Topics are given as a comma separated list, or as {@value #PATTERN_PREFIX} followed by a regex
+ * matching the topic names (topics created later are picked up too). Records are routed to
+ * their output by {@code record.topic()}, see {@link OutputFiles}.
+ * <p>
+ * The polling thread only fetches: every assigned partition has a {@link PartitionLane} writing
+ * its records in order, so partitions are written in parallel. A partition whose lane is full
+ * is paused until the lane catches up. Offsets are committed by hand, per partition, up to what
+ * its lane has written, every {@code consumer.syncEveryRecords} records or
+ * {@code consumer.syncIntervalMs}. In durable mode the output is forced to disk before each
+ * commit, once for the whole group of records, so a crash can repeat at most one group of words
+ * but never lose one whose offset was committed.
+ * <p>
+ * Fetching follows a {@link FetchProfile}; with the adaptive one a {@link FetchController}
+ * switches poll timeout and write buffer size between catch-up and low latency from the lag.
+ */
 public class KafkaConsumerService {
-    private final KafkaConsumer<String, String> consumer;
-    private final String outputFile;
+    private static final Logger log = LoggerFactory.getLogger(KafkaConsumerService.class);
 
-    public KafkaConsumerService(String topic, String outputFile) {
+    public static final String PATTERN_PREFIX = "regex:";
+
+    private static final long LANE_CLOSE_TIMEOUT_MILLIS = 30_000;
+
+    private final KafkaConsumer<String, byte[]> consumer;
+    private final OutputFiles outputs;
+    private final boolean durable;
+    private final int syncEveryRecords;
+    private final long syncIntervalMs;
+    private final int laneCapacity;
+    private final FetchProfile fetchProfile;
+    private final FetchController fetchController;
+    private final Map<TopicPartition, PartitionLane> lanes = new HashMap<>();
+    // Records of paused partitions, refused by their full lane
+    private final Map<TopicPartition, List<ConsumerRecord<String, byte[]>>> waiting = new HashMap<>();
+    private final Map<TopicPartition, Long> committed = new HashMap<>();
+    private int uncommittedRecords;
+    private long lastCommitMillis = System.currentTimeMillis();
+
+    /**
+     * @param topics         topic list or pattern
+     * @param outputTemplate output path, with {@value OutputFiles#TOPIC_PLACEHOLDER} standing
+     *                       for the topic when there is more than one
+     */
+    public KafkaConsumerService(String topics, String outputTemplate, ConsumerSettings settings) {
         Properties props = new Properties();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, "consumer-group-" + topic);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG,
+                settings.getGroupId() != null ? settings.getGroupId() : "consumer-group-" + topics);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+        // Polled records are not written yet, only the lanes know what may be committed
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        this.fetchProfile = settings.getFetchProfile();
+        fetchProfile.applyTo(props);
+        this.durable = settings.isDurable();
+        this.syncEveryRecords = settings.getSyncEveryRecords();
+        this.syncIntervalMs = settings.getSyncIntervalMs();
+        this.laneCapacity = settings.getLaneCapacity();
+        this.outputs = new OutputFiles(outputTemplate, fetchProfile == FetchProfile.CATCH_UP
+                ? settings.getCatchUpWriteBufferBytes()
+                : settings.getWriteBufferBytes());
         this.consumer = new KafkaConsumer<>(props);
-        this.consumer.subscribe(Collections.singletonList(topic));
-        this.outputFile = outputFile;
+        this.fetchController = fetchProfile == FetchProfile.ADAPTIVE ? new FetchController(consumer, outputs, settings) : null;
+        if (topics.startsWith(PATTERN_PREFIX)) {
+            this.consumer.subscribe(Pattern.compile(topics.substring(PATTERN_PREFIX.length())), new LaneRebalancer());
+        } else {
+            this.consumer.subscribe(Arrays.asList(topics.split(",")), new LaneRebalancer());
+        }
     }
 
+    /**
+     * Polls and hands the records to the partition lanes until {@link #shutdown()} is called,
+     * then lets the lanes finish and commits what they wrote.
+     */
     public void consume() {
         try {
             while (true) {
-                ConsumerRecords<String, String> records = consumer.poll(100);
-                for (ConsumerRecord<String, String> record : records) {
-                    Files.writeString(Paths.get(outputFile), record.value() + "\n", StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                ConsumerRecords<String, byte[]> records = consumer.poll(pollTimeout());
+                handOverWaiting();
+                for (TopicPartition partition : records.partitions()) {
+                    List<ConsumerRecord<String, byte[]>> batch = records.records(partition);
+                    uncommittedRecords += batch.size();
+                    if (!laneFor(partition).offer(batch)) {
+                        waiting.put(partition, batch);
+                        consumer.pause(Collections.singleton(partition));
+                    }
+                }
+                checkLanes();
+                if (uncommittedRecords >= syncEveryRecords || System.currentTimeMillis() - lastCommitMillis >= syncIntervalMs) {
+                    commit(false);
+                }
+                if (fetchController != null) {
+                    fetchController.maybeAdapt();
                 }
             }
+        } catch (WakeupException e) {
+            log.info("Consumer stopped");
+            try {
+                drainLanes(new ArrayList<>(lanes.keySet()));
+                commit(true);
+            } catch (IOException ex) {
+                log.error("Failed to sync the output, not committing its last offsets", ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
         } catch (IOException e) {
-            e.printStackTrace();
+            log.error("Failed to write the output", e);
         } finally {
+            closeLanes(new ArrayList<>(lanes.keySet()));
+            try {
+                outputs.close();
+            } catch (IOException e) {
+                log.error("Failed to flush the output", e);
+            }
             consumer.close();
         }
     }
-}
\ No newline at end of file
+
+    /** Makes {@link #consume()} return after flushing; safe to call from another thread. */
+    public void shutdown() {
+        consumer.wakeup();
+    }
+
+    private Duration pollTimeout() {
+        return fetchController != null ? fetchController.getProfile().getPollTimeout() : fetchProfile.getPollTimeout();
+    }
+
+    private PartitionLane laneFor(TopicPartition partition) {
+        return lanes.computeIfAbsent(partition, p -> new PartitionLane(p, outputs, laneCapacity));
+    }
+
+    /** Offers the records of paused partitions again, resuming the partitions whose lane took them. */
+    private void handOverWaiting() {
+        for (Iterator<Map.Entry<TopicPartition, List<ConsumerRecord<String, byte[]>>>> it = waiting.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<TopicPartition, List<ConsumerRecord<String, byte[]>>> entry = it.next();
+            if (laneFor(entry.getKey()).offer(entry.getValue())) {
+                it.remove();
+                consumer.resume(Collections.singleton(entry.getKey()));
+            }
+        }
+    }
+
+    /** Stops consuming once a lane could not write, rather than leaving its partition behind. */
+    private void checkLanes() throws IOException {
+        for (PartitionLane lane : lanes.values()) {
+            if (lane.getFailure() != null) {
+                throw lane.getFailure();
+            }
+        }
+    }
+
+    /**
+     * Commits, for every partition whose lane moved on, the offset after its last written record.
+     * In durable mode the output is forced to disk first, and nothing is committed if that fails.
+     */
+    private void commit(boolean blocking) throws IOException {
+        // Read before syncing, so every offset committed is covered by the sync
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (PartitionLane lane : lanes.values()) {
+            long next = lane.getNextOffset();
+            if (next > committed.getOrDefault(lane.getPartition(), -1L)) {
+                offsets.put(lane.getPartition(), new OffsetAndMetadata(next));
+            }
+        }
+        uncommittedRecords = 0;
+        lastCommitMillis = System.currentTimeMillis();
+        if (offsets.isEmpty()) {
+            return;
+        }
+        if (durable) {
+            outputs.sync();
+        }
+        offsets.forEach((partition, offset) -> committed.put(partition, offset.offset()));
+        if (blocking) {
+            consumer.commitSync(offsets);
+        } else {
+            consumer.commitAsync(offsets, (done, e) -> {
+                if (e != null) {
+                    log.warn("Offset commit failed, the next commit covers it", e);
+                }
+            });
+        }
+    }
+
+    private void drainLanes(Collection<TopicPartition> partitions) throws InterruptedException {
+        for (TopicPartition partition : partitions) {
+            waiting.remove(partition);
+            PartitionLane lane = lanes.get(partition);
+            if (lane != null) {
+                lane.drain();
+            }
+        }
+    }
+
+    private void closeLanes(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            waiting.remove(partition);
+            committed.remove(partition);
+            PartitionLane lane = lanes.remove(partition);
+            if (lane != null) {
+                try {
+                    lane.close(LANE_CLOSE_TIMEOUT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Before partitions move to another consumer, waits for their lanes to write what they were
+     * given and commits it, so the new owner does not consume it again. Runs on the polling thread.
+     */
+    private class LaneRebalancer implements ConsumerRebalanceListener {
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            try {
+                drainLanes(partitions);
+                commit(true);
+            } catch (IOException e) {
+                log.error("Failed to sync the output before a rebalance", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closeLanes(partitions);
+            }
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            partitions.forEach(KafkaConsumerService.this::laneFor);
+        }
+
+        @Override
+        public void onPartitionsLost(Collection<TopicPartition> partitions) {
+            // Another consumer already owns them, their offsets can no longer be committed
+            closeLanes(partitions);
+        }
+    }
+}
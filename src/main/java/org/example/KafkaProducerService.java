@@ -1,43 +1,594 @@
 package org.example;
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.HashingInputStream;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 public class KafkaProducerService {
-    private final KafkaProducer<String, String> producer;
+    private static final Logger log = LoggerFactory.getLogger(KafkaProducerService.class);
 
-    public KafkaProducerService() {
+    private static final int MAX_WORD_LENGTH = 10;
+    // Enough bytes for any UTF-8 word of MAX_WORD_LENGTH chars
+    private static final int MAX_WORD_BYTES = MAX_WORD_LENGTH * 4;
+    // Files are mapped and tokenized one window at a time, so heap usage does not grow with file size
+    private static final long MAP_WINDOW_BYTES = 64L * 1024 * 1024;
+    // Compressed files are decompressed through a buffer of this size straight into the tokenizer
+    private static final int DECOMPRESS_BUFFER_BYTES = 256 * 1024;
+    private static final int HASH_BUFFER_BYTES = 1024 * 1024;
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30_000;
+
+    private final KafkaProducer<String, WordSlice> producer;
+    private final TopicRouter router;
+    // Separate lanes, so a few huge files cannot hold up the many small ones queued behind them
+    private final WorkerPool smallFiles;
+    private final WorkerPool largeFiles;
+    private final long largeFileBytes;
+    private final Backpressure backpressure;
+    private final ForkJoinPool chunkPool;
+    private final long parallelThresholdBytes;
+    private final long parallelChunkBytes;
+    private final int logSampleEvery;
+    private final int packedWords;
+    private final BatchingController batchingController;
+    private final ScheduledExecutorService maintenance;
+    private final Path archiveDir;
+    private final CheckpointStore checkpoints;
+    private final long checkpointBytes;
+    // Files in progress with the watermark last written for each
+    private final Map<CheckpointTracker, Long> savedCheckpoints = new ConcurrentHashMap<>();
+    // Checkpoint of every delivered file that could not be removed yet, deleted along with the file
+    private final Map<Path, String> unremoved = new ConcurrentHashMap<>();
+    private final ContentIndex contentIndex;
+
+    public KafkaProducerService(ProducerSettings settings) {
         Properties props = new Properties();
-        props.put("bootstrap.servers", "localhost:9092");
-        props.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
-        props.put("value.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        settings.getProfile().applyTo(props);
+        props.putAll(settings.getKafkaOverrides());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringSerializer");
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, WordSliceSerializer.class.getName());
         this.producer = new KafkaProducer<>(props);
+        this.router = new TopicRouter(MAX_WORD_LENGTH);
+        this.router.warmUp(producer);
+        this.smallFiles = new WorkerPool("small-file-worker", settings.getWorkers(), settings.getQueueCapacity());
+        this.largeFiles = new WorkerPool("large-file-worker", settings.getLargeWorkers(), settings.getLargeQueueCapacity());
+        this.largeFileBytes = settings.getLargeFileBytes();
+        this.backpressure = new Backpressure(producer, new WorkerPool[]{smallFiles, largeFiles},
+                settings.getPauseLoad(), settings.getResumeLoad());
+        this.chunkPool = new ForkJoinPool(settings.getParallelism());
+        this.parallelThresholdBytes = settings.getParallelThresholdBytes();
+        this.parallelChunkBytes = settings.getParallelChunkBytes();
+        this.logSampleEvery = settings.getLogSampleEvery();
+        this.packedWords = settings.getPackedWords();
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "producer-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.archiveDir = settings.getArchiveDir() != null ? Paths.get(settings.getArchiveDir()) : null;
+        if (settings.isAdaptiveBatching() && packedWords > 0) {
+            this.batchingController = new BatchingController(producer, packedWords, settings.getMaxPackedWords(),
+                    settings.getTargetRequestLatencyMs());
+            maintenance.scheduleWithFixedDelay(batchingController, settings.getAdaptIntervalMs(),
+                    settings.getAdaptIntervalMs(), TimeUnit.MILLISECONDS);
+        } else {
+            if (settings.isAdaptiveBatching()) {
+                log.warn("producer.adaptiveBatching needs producer.packedWords > 0, leaving batching fixed");
+            }
+            this.batchingController = null;
+        }
+        this.checkpointBytes = settings.getCheckpointBytes();
+        if (settings.getCheckpointDir() != null) {
+            try {
+                this.checkpoints = new CheckpointStore(Paths.get(settings.getCheckpointDir()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            maintenance.scheduleWithFixedDelay(this::saveCheckpoints, settings.getCheckpointIntervalMs(),
+                    settings.getCheckpointIntervalMs(), TimeUnit.MILLISECONDS);
+        } else {
+            this.checkpoints = null;
+        }
+        try {
+            this.contentIndex = settings.getDedupIndex() != null
+                    ? new ContentIndex(Paths.get(settings.getDedupIndex()), settings.getDedupMaxEntries(), settings.getDedupRetentionMs())
+                    : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Queues a file for sending, on the large file lane if it is at least
+     * {@code producer.largeFileBytes} long and on the small file lane otherwise. The worker only
+     * hands the records to the producer; the file is deleted (or archived) later, once every
+     * record has been acknowledged, and kept if any record fails.
+     *
+     * @return completes once every record has been settled, with the outcome for the file
+     */
+    public CompletableFuture<FileOutcome> processFile(Path filePath) {
+        FileCompletion completion = new FileCompletion(filePath);
+        try {
+            laneFor(filePath).submit(() -> {
+                try {
+                    log.debug("Processing {}", filePath);
+                    sendFile(completion);
+                } catch (IOException | RuntimeException e) {
+                    completion.fail(e);
+                } finally {
+                    completion.seal();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            completion.fail(e);
+            completion.seal();
+        }
+        return completion.future().handleAsync((ignored, failure) -> finishFile(completion, failure), maintenance);
+    }
+
+    /**
+     * Deletes (or archives) a file whose words were all delivered but which could not be
+     * removed at the time, see {@link FileOutcome#UNREMOVED}.
+     *
+     * @return whether the file is gone now
+     */
+    public boolean removeFile(Path filePath) {
+        if (!remove(filePath)) {
+            return false;
+        }
+        String checkpointKey = unremoved.remove(filePath);
+        if (checkpointKey != null) {
+            deleteCheckpoint(checkpointKey, filePath);
+        }
+        return true;
+    }
+
+    public Backpressure getBackpressure() {
+        return backpressure;
     }
 
-    public void processFile(Path filePath) {
-        Executors.newSingleThreadExecutor().execute(() -> {
+    /** Fingerprints of the ingested files, or null when deduplication is disabled. */
+    public ContentIndex getContentIndex() {
+        return contentIndex;
+    }
+
+    /**
+     * Waits for the files already handed to the pool, then flushes and closes the producer and
+     * lets the files acknowledged by the final flush be removed.
+     */
+    public void close() {
+        try {
+            for (WorkerPool lane : new WorkerPool[]{smallFiles, largeFiles}) {
+                if (!lane.shutdown(SHUTDOWN_TIMEOUT_MILLIS)) {
+                    log.warn("{} did not finish within {} ms", lane, SHUTDOWN_TIMEOUT_MILLIS);
+                }
+            }
+            chunkPool.shutdown();
+            chunkPool.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            producer.close();
+            maintenance.shutdown();
+        }
+        try {
+            maintenance.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private WorkerPool laneFor(Path filePath) {
+        try {
+            return Files.size(filePath) >= largeFileBytes ? largeFiles : smallFiles;
+        } catch (IOException e) {
+            return smallFiles;  // Reading it will fail and report the problem
+        }
+    }
+
+    private FileOutcome finishFile(FileCompletion completion, Throwable failure) {
+        Path filePath = completion.getFile();
+        CheckpointTracker checkpoint = completion.getCheckpoint();
+        if (checkpoint != null) {
+            savedCheckpoints.remove(checkpoint);
+        }
+        if (failure != null) {
+            Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+            log.error("Keeping {}, not all of its words were delivered", filePath, cause);
+            if (checkpoint != null) {
+                saveCheckpoint(checkpoint);
+            }
+            return FileOutcome.FAILED;
+        }
+        if (completion.isDuplicate()) {
+            log.info("Skipping {}, its content has already been ingested", filePath);
+        } else if (completion.getFingerprint() != null) {
             try {
-                String content = Files.readString(filePath);
-                System.out.println("kafka");
-                Arrays.stream(content.split("\\s+"))
-                        .filter(word -> word.length() <= 10)
-                        .forEach(word -> {
-                            System.out.println("lal");
-                            System.out.println(word);
-                            String topic = String.valueOf(word.length());
-                            producer.send(new ProducerRecord<>(topic, word));
-                        });
-                Files.delete(filePath);  // Elimina il file dopo aver completato l'elaborazione
+                contentIndex.record(completion.getFingerprint(), Files.size(filePath));
             } catch (IOException e) {
-                e.printStackTrace();
+                log.warn("Could not index the content of {}", filePath, e);
+            }
+        }
+        if (!remove(filePath)) {
+            if (checkpoint != null) {
+                // At the end of the file, so a restart before the removal succeeds sends nothing again
+                saveCheckpoint(checkpoint);
+                unremoved.put(filePath, checkpoint.getKey());
+            }
+            return FileOutcome.UNREMOVED;
+        }
+        if (checkpoint != null) {
+            deleteCheckpoint(checkpoint.getKey(), filePath);
+        }
+        return FileOutcome.DONE;
+    }
+
+    private boolean remove(Path filePath) {
+        try {
+            if (archiveDir != null) {
+                archive(filePath);
+            } else {
+                Files.delete(filePath);
+            }
+            log.debug("Finished {}", filePath);
+            return true;
+        } catch (IOException e) {
+            log.error("Could not remove {} after sending it", filePath, e);
+            return false;
+        }
+    }
+
+    private void deleteCheckpoint(String key, Path filePath) {
+        try {
+            checkpoints.delete(key);
+        } catch (IOException e) {
+            log.warn("Could not delete the checkpoint of {}", filePath, e);
+        }
+    }
+
+    /**
+     * Moves a finished file into the archive directory. Files of different directories can
+     * share a name, so an archived file of the same name gets a unique suffix instead of being
+     * replaced.
+     */
+    private void archive(Path filePath) throws IOException {
+        Files.createDirectories(archiveDir);
+        Path target = archiveDir.resolve(filePath.getFileName());
+        try {
+            Files.move(filePath, target);
+        } catch (FileAlreadyExistsException e) {
+            target = archiveDir.resolve(filePath.getFileName() + "." + System.nanoTime());
+            Files.move(filePath, target);
+            log.info("Archived {} as {}, an archived file of that name exists", filePath, target.getFileName());
+        }
+    }
+
+    /** Writes the watermarks that moved since they were last written. Runs on the maintenance thread. */
+    private void saveCheckpoints() {
+        savedCheckpoints.forEach((checkpoint, saved) -> {
+            if (checkpoint.getWatermark() != saved) {
+                saveCheckpoint(checkpoint);
             }
         });
     }
+
+    private void saveCheckpoint(CheckpointTracker checkpoint) {
+        long watermark = checkpoint.getWatermark();
+        try {
+            checkpoints.save(checkpoint.getKey(), watermark);
+            savedCheckpoints.replace(checkpoint, watermark);
+        } catch (IOException e) {
+            log.warn("Could not save checkpoint {}", checkpoint.getKey(), e);
+        }
+    }
+
+    private void sendFile(FileCompletion completion) throws IOException {
+        try (FileChannel channel = FileChannel.open(completion.getFile(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            // Files of a size never ingested cannot be duplicates and are hashed while they are sent
+            if (contentIndex != null && contentIndex.mayContain(size)) {
+                completion.setFingerprint(hash(channel, size).hash());
+                if (contentIndex.contains(completion.getFingerprint())) {
+                    completion.markDuplicate();
+                    return;
+                }
+            }
+            long start = resumeOffset(completion, channel);
+            Compression compression = Compression.detect(channel);
+            boolean chunked = compression == Compression.NONE && size - start >= parallelThresholdBytes;
+            // Chunks are tokenized out of order, so they cannot feed a hash on the way
+            if (contentIndex != null && completion.getFingerprint() == null && chunked) {
+                completion.setFingerprint(hash(channel, size).hash());
+            }
+            boolean fingerprint = contentIndex != null && completion.getFingerprint() == null;
+            if (compression != Compression.NONE) {
+                sendCompressed(channel, compression, completion, start, fingerprint);
+            } else if (chunked) {
+                chunkPool.invoke(new ChunkTask(channel, completion, start, size));
+            } else {
+                // The part sent by a previous attempt is hashed first, and the rest as it is sent
+                Hasher hasher = fingerprint ? hash(channel, start) : null;
+                sendRange(channel, completion, start, size, hasher);
+                if (hasher != null) {
+                    completion.setFingerprint(hasher.hash());
+                }
+            }
+        }
+    }
+
+    /** Feeds the raw bytes of a file before {@code end} to a new hasher, in a sequential pass. */
+    private static Hasher hash(FileChannel channel, long end) throws IOException {
+        Hasher hasher = ContentIndex.HASH.newHasher();
+        ByteBuffer buf = ByteBuffer.allocate(HASH_BUFFER_BYTES);
+        long position = 0;
+        while (position < end) {
+            buf.clear().limit((int) Math.min(buf.capacity(), end - position));
+            int read = channel.read(buf, position);
+            if (read <= 0) {
+                break;
+            }
+            hasher.putBytes(buf.flip());
+            position += read;
+        }
+        return hasher;
+    }
+
+    /**
+     * Starts tracking the acknowledged offset of a file, if checkpoints are enabled, and returns
+     * the offset a previous attempt got to (in decompressed bytes for compressed files).
+     */
+    private long resumeOffset(FileCompletion completion, FileChannel channel) throws IOException {
+        if (checkpoints == null) {
+            return 0;
+        }
+        Path filePath = completion.getFile();
+        String key = checkpoints.key(channel, Files.getLastModifiedTime(filePath).toMillis());
+        long start = checkpoints.load(key);
+        if (start > 0) {
+            log.info("Resuming {} at offset {}", filePath, start);
+        }
+        CheckpointTracker checkpoint = new CheckpointTracker(key, completion, start);
+        completion.setCheckpoint(checkpoint);
+        savedCheckpoints.put(checkpoint, start);
+        return start;
+    }
+
+    /**
+     * Tokenizes and sends the bytes in {@code [start, end)}, mapping one window at a time.
+     * The range must start and end on a word boundary. The optional hasher is fed the same bytes.
+     */
+    private void sendRange(FileChannel channel, FileCompletion completion, long start, long end, Hasher hasher)
+            throws IOException {
+        FileSender sender = new FileSender(completion, start);
+        WordTokenizer tokenizer = sender.tokenizer;
+        for (long position = start; position < end; position += MAP_WINDOW_BYTES) {
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW_BYTES, end - position));
+            if (hasher != null) {
+                hasher.putBytes(window.duplicate());
+            }
+            tokenizer.feed(window);
+        }
+        tokenizer.finish();
+        sender.finish();
+    }
+
+    private int currentPackedWords() {
+        return batchingController != null ? batchingController.getPackedWords() : packedWords;
+    }
+
+    /**
+     * Decompresses a file into a fixed buffer and tokenizes it as it goes, without writing the
+     * decompressed data anywhere. Compressed streams cannot be split, so this is single threaded,
+     * and resuming means decompressing and discarding everything before {@code start}. With
+     * {@code fingerprint} set the compressed bytes are hashed on the way.
+     */
+    private void sendCompressed(FileChannel channel, Compression compression, FileCompletion completion, long start,
+                                boolean fingerprint) throws IOException {
+        FileSender sender = new FileSender(completion, start);
+        WordTokenizer tokenizer = sender.tokenizer;
+        byte[] buf = new byte[DECOMPRESS_BUFFER_BYTES];
+        channel.position(0);
+        InputStream raw = Channels.newInputStream(channel);
+        HashingInputStream hashing = fingerprint ? new HashingInputStream(ContentIndex.HASH, raw) : null;
+        try (InputStream in = compression.decompress(hashing != null ? hashing : raw)) {
+            in.skipNBytes(start);
+            int read;
+            while ((read = in.read(buf)) != -1) {
+                tokenizer.feed(ByteBuffer.wrap(buf, 0, read));
+            }
+            if (hashing != null) {
+                // The decompressor may stop short of trailing bytes, which are part of the content all the same
+                while (hashing.read(buf) != -1) {
+                    // Hashed as it is read
+                }
+                completion.setFingerprint(hashing.hash());
+            }
+        }
+        tokenizer.finish();
+        sender.finish();
+    }
+
+    /**
+     * Returns the position of the first whitespace byte at or after {@code from}, or {@code end}
+     * if there is none, so that a range can be cut there without splitting a word.
+     */
+    private static long nextWhitespace(FileChannel channel, long from, long end) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        long position = from;
+        while (position < end) {
+            buf.clear().limit((int) Math.min(buf.capacity(), end - position));
+            int read = channel.read(buf, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (WordTokenizer.isWhitespace(buf.get(i))) {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return end;
+    }
+
+    /**
+     * Splits a range of a large file in halves, cut on whitespace, until the pieces are small
+     * enough, and tokenizes the pieces in parallel. Each piece has its own tokenizer and sender.
+     */
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final FileCompletion completion;
+        private final long start;
+        private final long end;
+
+        ChunkTask(FileChannel channel, FileCompletion completion, long start, long end) {
+            this.channel = channel;
+            this.completion = completion;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                long middle = end - start > parallelChunkBytes
+                        ? nextWhitespace(channel, start + (end - start) / 2, end)
+                        : end;
+                if (middle >= end) {
+                    sendRange(channel, completion, start, end, null);
+                } else {
+                    invokeAll(new ChunkTask(channel, completion, start, middle),
+                            new ChunkTask(channel, completion, middle, end));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Sends the words of one file (or chunk) straight from the tokenizer's bytes. Each sender
+     * owns its tokenizer, reusable value slice and optional packer, and reports every record to
+     * the file's completion. With checkpoints enabled the records are reported through segments
+     * of about {@code producer.checkpointBytes} of input, cut between two words.
+     */
+    private class FileSender implements WordTokenizer.WordSink {
+        private final FileCompletion completion;
+        private final WordTokenizer tokenizer;
+        private final WordSlice slice = new WordSlice();
+        private final WordPacker packer = packedWords > 0
+                ? new WordPacker(router.getMaxWordLength(), currentPackedWords(), this::sendPacked)
+                : null;
+        private CheckpointTracker.Segment segment;
+        private long segmentStart;
+        private long lastWordEnd;
+
+        FileSender(FileCompletion completion, long start) {
+            this.completion = completion;
+            this.tokenizer = new WordTokenizer(this, MAX_WORD_BYTES, start);
+            this.lastWordEnd = start;
+            openSegment(start);
+        }
+
+        @Override
+        public void onWord(byte[] buf, int offset, int length) {
+            // Cut before the word rather than after it, so a segment never ends up empty
+            if (segment != null && lastWordEnd - segmentStart >= checkpointBytes) {
+                flushPacker();
+                segment.close(lastWordEnd);
+                openSegment(lastWordEnd);
+            }
+            lastWordEnd = tokenizer.getWordEnd();
+            int wordLength = WordTokenizer.charLength(buf, offset, length);
+            // Stray continuation bytes (e.g. Latin-1 text) count 0 chars and have no topic, like too long words
+            if (wordLength < 1 || wordLength > router.getMaxWordLength()) {
+                return;
+            }
+            // At info, since the sampling rate already keeps it quiet and is opted into
+            if (logSampleEvery > 0 && ThreadLocalRandom.current().nextInt(logSampleEvery) == 0) {
+                log.info("Sampled word '{}' -> topic {}",
+                        new String(buf, offset, length, StandardCharsets.UTF_8), router.topicFor(wordLength));
+            }
+            if (packer == null || !packer.add(wordLength, buf, offset, length)) {
+                send(new ProducerRecord<>(router.topicFor(wordLength), slice.set(buf, offset, length)));
+            }
+        }
+
+        void finish() {
+            flushPacker();
+            if (segment != null) {
+                segment.close(tokenizer.getPosition());
+            }
+        }
+
+        private void flushPacker() {
+            if (packer != null) {
+                packer.flush();
+            }
+        }
+
+        private void openSegment(long start) {
+            CheckpointTracker checkpoint = completion.getCheckpoint();
+            if (checkpoint != null) {
+                segment = checkpoint.openSegment(start);
+                segmentStart = start;
+            }
+        }
+
+        private void sendPacked(int wordLength, byte[] buf, int length) {
+            ProducerRecord<String, WordSlice> record =
+                    new ProducerRecord<>(router.topicFor(wordLength), slice.set(buf, 0, length));
+            record.headers().add(WordPacker.HEADER, WordPacker.HEADER_VALUE);
+            send(record);
+        }
+
+        private void send(ProducerRecord<String, WordSlice> record) {
+            completion.beforeSend();
+            Callback callback = completion;
+            if (segment != null) {
+                segment.beforeSend();
+                callback = segment;
+            }
+            try {
+                producer.send(record, callback);
+            } catch (RuntimeException e) {
+                callback.onCompletion(null, e);
+                throw e;
+            }
+        }
+    }
 }
@@ -0,0 +1,85 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The output writers of one consumer, one per topic. The output path of a topic is the template
+ * with {@value #TOPIC_PLACEHOLDER} replaced by the topic name; topics resolving to the same path
+ * share one writer. Writers are opened on the first record of their topic, so topics matched by
+ * a subscription pattern later on get their file too. Thread safe; each writer is used under
+ * its own lock.
+ */
+public class OutputFiles implements Closeable {
+    public static final String TOPIC_PLACEHOLDER = "{topic}";
+
+    private final String template;
+    private int bufferBytes;
+    private final Map<String, OutputWriter> byTopic = new HashMap<>();
+    private final Map<Path, OutputWriter> byPath = new HashMap<>();
+
+    public OutputFiles(String template, int bufferBytes) {
+        this.template = template;
+        this.bufferBytes = bufferBytes;
+    }
+
+    /** Writer of a topic, opened if needed. */
+    public synchronized OutputWriter forTopic(String topic) throws IOException {
+        OutputWriter writer = byTopic.get(topic);
+        if (writer == null) {
+            Path file = Paths.get(template.replace(TOPIC_PLACEHOLDER, topic));
+            writer = byPath.get(file);
+            if (writer == null) {
+                writer = new OutputWriter(file, bufferBytes);
+                byPath.put(file, writer);
+            }
+            byTopic.put(topic, writer);
+        }
+        return writer;
+    }
+
+    /** Buffer size of the writers, applied to open ones at their next flush. */
+    public synchronized void setBufferBytes(int bufferBytes) {
+        this.bufferBytes = bufferBytes;
+        for (OutputWriter writer : byPath.values()) {
+            synchronized (writer) {
+                writer.setBufferBytes(bufferBytes);
+            }
+        }
+    }
+
+    /** Forces every writer written since the last sync to disk. */
+    public synchronized void sync() throws IOException {
+        for (OutputWriter writer : byPath.values()) {
+            synchronized (writer) {
+                writer.sync();
+            }
+        }
+    }
+
+    /** Closes every writer, even if some fail; the first failure is thrown. */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (OutputWriter writer : byPath.values()) {
+            try {
+                synchronized (writer) {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
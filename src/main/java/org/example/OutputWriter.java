@@ -0,0 +1,93 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends words, one per line, to an output file kept open for the life of the consumer.
+ * <p>
+ * Lines are collected in one reusable buffer and reach the file only when it is full or on
+ * {@link #flush()}, so a poll batch that fits in the buffer costs a single write call instead of
+ * an open, write and close per word. Not thread safe: threads sharing a writer synchronize on it.
+ */
+public class OutputWriter implements Closeable {
+    private final Path file;
+    private final FileChannel channel;
+    private ByteBuffer buffer;
+    private int bufferBytes;
+    // Written since the last sync
+    private boolean unsynced;
+
+    public OutputWriter(Path file, int bufferBytes) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+        this.bufferBytes = bufferBytes;
+    }
+
+    /** Resizes the buffer, the next time it is empty. */
+    public void setBufferBytes(int bufferBytes) {
+        this.bufferBytes = bufferBytes;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /** Appends a word and a line feed. */
+    public void writeLine(byte[] buf, int offset, int length) throws IOException {
+        unsynced = true;
+        if (buffer.remaining() < length + 1) {
+            drain();
+            if (buffer.remaining() < length + 1) {
+                // Larger than the whole buffer, not worth splitting
+                writeFully(ByteBuffer.wrap(buf, offset, length));
+                buffer.put((byte) '\n');
+                return;
+            }
+        }
+        buffer.put(buf, offset, length).put((byte) '\n');
+    }
+
+    /** Hands everything buffered to the operating system. */
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /** Flushes and forces everything written so far to disk; does nothing if nothing was written. */
+    public void sync() throws IOException {
+        if (unsynced) {
+            flush();
+            channel.force(false);
+            unsynced = false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+        if (buffer.capacity() != bufferBytes) {
+            buffer = ByteBuffer.allocateDirect(bufferBytes);
+        }
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.example;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes the records of one assigned partition on a thread of its own, in offset order.
+ * <p>
+ * The polling thread hands over each poll's records of the partition as one batch; a batch is
+ * written to the topic's output and flushed as a whole, and only then does
+ * {@link #getNextOffset()} move past it, so the offset is always safe to commit (after a sync
+ * in durable mode). A full lane refuses batches, and the polling thread pauses the partition.
+ * Once a write fails the lane drops everything after it, keeping its offset where it failed.
+ */
+public class PartitionLane {
+    private static final Logger log = LoggerFactory.getLogger(PartitionLane.class);
+
+    // Queued after the last batch to stop the thread; interrupting it would close the output channel
+    private static final List<ConsumerRecord<String, byte[]>> STOP = Collections.emptyList();
+
+    private final TopicPartition partition;
+    private final OutputFiles outputs;
+    private final BlockingQueue<List<ConsumerRecord<String, byte[]>>> batches;
+    private final Thread thread;
+    // Batches accepted and not written yet, guarded by this
+    private int pending;
+    private volatile long nextOffset = -1;
+    private volatile IOException failure;
+
+    public PartitionLane(TopicPartition partition, OutputFiles outputs, int capacity) {
+        this.partition = partition;
+        this.outputs = outputs;
+        this.batches = new ArrayBlockingQueue<>(capacity + 1);  // Room for STOP
+        this.thread = new Thread(this::run, "partition-lane-" + partition.topic() + "-" + partition.partition());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public TopicPartition getPartition() {
+        return partition;
+    }
+
+    /** Offset after the last record written, or -1 if none has been written yet. */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    /** Why the lane stopped writing, or null if it did not. */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Queues the next records of the partition.
+     *
+     * @return false if the lane is full and the records must be offered again later
+     */
+    public boolean offer(List<ConsumerRecord<String, byte[]>> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        synchronized (this) {
+            if (batches.remainingCapacity() <= 1) {
+                return false;
+            }
+            pending++;
+        }
+        batches.add(batch);
+        return true;
+    }
+
+    /** Waits until every batch accepted so far has been written (or dropped after a failure). */
+    public synchronized void drain() throws InterruptedException {
+        while (pending > 0) {
+            wait();
+        }
+    }
+
+    /**
+     * Stops the thread once it is idle; batches not written yet are discarded, e.g. because the
+     * partition was lost.
+     */
+    public void close(long timeoutMillis) throws InterruptedException {
+        List<List<ConsumerRecord<String, byte[]>>> discarded = new ArrayList<>();
+        synchronized (this) {
+            batches.drainTo(discarded);
+            pending -= discarded.size();
+            notifyAll();
+        }
+        batches.add(STOP);
+        thread.join(timeoutMillis);
+    }
+
+    private void run() {
+        try {
+            OutputWriter writer = null;
+            while (true) {
+                List<ConsumerRecord<String, byte[]>> batch = batches.take();
+                if (batch == STOP) {
+                    return;
+                }
+                try {
+                    if (failure == null) {
+                        if (writer == null) {
+                            writer = outputs.forTopic(partition.topic());
+                        }
+                        write(batch, writer);
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                } catch (UncheckedIOException e) {
+                    fail(e.getCause());
+                } catch (RuntimeException e) {
+                    // Keeps the thread alive, so drain() and close() still return
+                    fail(new IOException("Unexpected failure writing " + partition, e));
+                } finally {
+                    done();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(List<ConsumerRecord<String, byte[]>> batch, OutputWriter writer) throws IOException {
+        // Partitions of one topic share its writer
+        synchronized (writer) {
+            for (ConsumerRecord<String, byte[]> record : batch) {
+                writeLines(record, writer);
+            }
+            writer.flush();
+        }
+        nextOffset = batch.get(batch.size() - 1).offset() + 1;
+    }
+
+    private void fail(IOException e) {
+        log.error("Failed to write {}, dropping its records from offset {}", partition, nextOffset, e);
+        failure = e;
+    }
+
+    private synchronized void done() {
+        if (--pending == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Writes the words of a record, one per line, as the raw UTF-8 bytes the producer read.
+     */
+    private static void writeLines(ConsumerRecord<String, byte[]> record, OutputWriter writer) throws IOException {
+        if (record.headers().lastHeader(WordPacker.HEADER) == null) {
+            writer.writeLine(record.value(), 0, record.value().length);
+            return;
+        }
+        WordPacker.unpack(record.value(), (buf, offset, length) -> {
+            try {
+                writer.writeLine(buf, offset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -1,11 +1,33 @@
 package org.example;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
 public class ProducerApp {
+    private static final Logger log = LoggerFactory.getLogger(ProducerApp.class);
+
     public static void main(String[] args) {
-        String watchDir = args[0];
-        System.out.println("lol");
-        KafkaProducerService producerService = new KafkaProducerService();
-        FileWatcher fileWatcher = new FileWatcher(watchDir, producerService);
+        if (args.length == 0) {
+            System.err.println("Usage: ProducerApp <directory> [<directory> ...]");
+            System.exit(1);
+        }
+        for (String dir : args) {
+            if (!Files.isDirectory(Paths.get(dir))) {
+                System.err.println("Not a directory: " + dir);
+                System.exit(1);
+            }
+        }
+        List<String> watchDirs = Arrays.asList(args);
+        log.info("Watching {}", watchDirs);
+        ProducerSettings settings = ProducerSettings.fromSystemProperties();
+        KafkaProducerService producerService = new KafkaProducerService(settings);
+        Runtime.getRuntime().addShutdownHook(new Thread(producerService::close));
+        FileWatcher fileWatcher = new FileWatcher(watchDirs, producerService, settings);
         fileWatcher.watch();
     }
 }
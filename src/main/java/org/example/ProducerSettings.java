@@ -0,0 +1,365 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import static org.example.ClientConfig.intValue;
+import static org.example.ClientConfig.longValue;
+
+/**
+ * Tuning knobs of the producer process. Values are read from a {@link Properties} source,
+ * normally the system properties, e.g. {@code -Dproducer.workers=8}.
+ * <p>
+ * Settings of the {@code KafkaProducer} itself can be given as properties prefixed with
+ * {@code kafka.} (e.g. {@code -Dkafka.linger.ms=20}) or in a properties file named by
+ * {@code producer.kafkaConfig}; the prefixed properties win over the file.
+ */
+public class ProducerSettings {
+    private final int workers;
+    private final int queueCapacity;
+    private final long largeFileBytes;
+    private final int largeWorkers;
+    private final int largeQueueCapacity;
+    private final int logSampleEvery;
+    private final int packedWords;
+    private final long parallelThresholdBytes;
+    private final long parallelChunkBytes;
+    private final int parallelism;
+    private final ThroughputProfile profile;
+    private final Properties kafkaOverrides;
+    private final boolean adaptiveBatching;
+    private final int maxPackedWords;
+    private final long targetRequestLatencyMs;
+    private final long adaptIntervalMs;
+    private final String archiveDir;
+    private final long settleMillis;
+    private final String tempSuffix;
+    private final boolean recursive;
+    private final long rescanIntervalMs;
+    private final boolean claimFiles;
+    private final String instanceId;
+    private final long claimHeartbeatMs;
+    private final long claimTimeoutMs;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final double pauseLoad;
+    private final double resumeLoad;
+    private final int pendingCapacity;
+    private final long gaugeIntervalMs;
+    private final String include;
+    private final String exclude;
+    private final String checkpointDir;
+    private final long checkpointBytes;
+    private final long checkpointIntervalMs;
+    private final String dedupIndex;
+    private final int dedupMaxEntries;
+    private final long dedupRetentionMs;
+
+    public ProducerSettings(Properties props) {
+        this.workers = intValue(props, "producer.workers", Runtime.getRuntime().availableProcessors());
+        this.queueCapacity = intValue(props, "producer.queueCapacity", 1024);
+        this.largeFileBytes = longValue(props, "producer.largeFileBytes", 64L * 1024 * 1024);
+        this.largeWorkers = intValue(props, "producer.largeWorkers", Math.max(1, workers / 4));
+        this.largeQueueCapacity = intValue(props, "producer.largeQueueCapacity", 4096);
+        this.logSampleEvery = intValue(props, "producer.logSampleEvery", 0);
+        this.packedWords = intValue(props, "producer.packedWords", 0);
+        this.parallelThresholdBytes = longValue(props, "producer.parallelThresholdBytes", 256L * 1024 * 1024);
+        this.parallelChunkBytes = longValue(props, "producer.parallelChunkBytes", 32L * 1024 * 1024);
+        this.parallelism = intValue(props, "producer.parallelism", Runtime.getRuntime().availableProcessors());
+        this.profile = ThroughputProfile.parse(props.getProperty("producer.profile", "default"));
+        this.kafkaOverrides = kafkaOverrides(props);
+        this.adaptiveBatching = Boolean.parseBoolean(props.getProperty("producer.adaptiveBatching", "false"));
+        this.maxPackedWords = intValue(props, "producer.maxPackedWords", 10_000);
+        this.targetRequestLatencyMs = longValue(props, "producer.targetRequestLatencyMs", 100);
+        this.adaptIntervalMs = longValue(props, "producer.adaptIntervalMs", 5_000);
+        this.archiveDir = props.getProperty("producer.archiveDir");
+        this.settleMillis = longValue(props, "watcher.settleMillis", 1_000);
+        this.tempSuffix = props.getProperty("watcher.tempSuffix", ".tmp");
+        this.recursive = Boolean.parseBoolean(props.getProperty("watcher.recursive", "false"));
+        this.rescanIntervalMs = longValue(props, "watcher.rescanIntervalMs", 0);
+        this.claimFiles = Boolean.parseBoolean(props.getProperty("watcher.claimFiles", "false"));
+        this.instanceId = props.getProperty("watcher.instanceId", defaultInstanceId());
+        this.claimHeartbeatMs = longValue(props, "watcher.claimHeartbeatMs", 10_000);
+        this.claimTimeoutMs = longValue(props, "watcher.claimTimeoutMs", 60_000);
+        this.maxAttempts = intValue(props, "watcher.maxAttempts", 3);
+        this.retryBackoffMs = longValue(props, "watcher.retryBackoffMs", 10_000);
+        this.pauseLoad = Double.parseDouble(props.getProperty("producer.pauseLoad", "0.9"));
+        this.resumeLoad = Double.parseDouble(props.getProperty("producer.resumeLoad", "0.7"));
+        this.pendingCapacity = intValue(props, "watcher.pendingCapacity", 10_000);
+        this.gaugeIntervalMs = longValue(props, "watcher.gaugeIntervalMs", 60_000);
+        this.include = props.getProperty("watcher.include", "");
+        this.exclude = props.getProperty("watcher.exclude", "");
+        this.checkpointDir = props.getProperty("producer.checkpointDir");
+        this.checkpointBytes = longValue(props, "producer.checkpointBytes", 8L * 1024 * 1024);
+        this.checkpointIntervalMs = longValue(props, "producer.checkpointIntervalMs", 5_000);
+        this.dedupIndex = props.getProperty("producer.dedupIndex");
+        this.dedupMaxEntries = intValue(props, "producer.dedupMaxEntries", 100_000);
+        this.dedupRetentionMs = longValue(props, "producer.dedupRetentionMs", 7L * 24 * 60 * 60 * 1000);
+    }
+
+    public static ProducerSettings fromSystemProperties() {
+        return new ProducerSettings(System.getProperties());
+    }
+
+    /** Number of threads processing small files. */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /** Small files that may wait for a free worker before submission blocks. */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /** Files of at least this size go to the large file lane. */
+    public long getLargeFileBytes() {
+        return largeFileBytes;
+    }
+
+    /** Number of threads processing large files. */
+    public int getLargeWorkers() {
+        return largeWorkers;
+    }
+
+    /**
+     * Large files that may wait for a free worker before submission blocks. Generous by
+     * default, since a blocked submission also holds up small files.
+     */
+    public int getLargeQueueCapacity() {
+        return largeQueueCapacity;
+    }
+
+    /** Log about one in this many sent words at info level; 0 disables sampling. */
+    public int getLogSampleEvery() {
+        return logSampleEvery;
+    }
+
+    /**
+     * Words of the same length packed into one record (see {@link WordPacker});
+     * 0 sends one record per word.
+     */
+    public int getPackedWords() {
+        return packedWords;
+    }
+
+    /** Files of at least this size are split into chunks tokenized in parallel. */
+    public long getParallelThresholdBytes() {
+        return parallelThresholdBytes;
+    }
+
+    /** Target size of the chunks a large file is split into. */
+    public long getParallelChunkBytes() {
+        return parallelChunkBytes;
+    }
+
+    /** Threads of the fork-join pool tokenizing chunks of large files. */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /** Preset batching, compression and acks of the Kafka producer. */
+    public ThroughputProfile getProfile() {
+        return profile;
+    }
+
+    /** Kafka producer settings given explicitly, applied over the profile. */
+    public Properties getKafkaOverrides() {
+        return kafkaOverrides;
+    }
+
+    /** Whether {@link BatchingController} tunes the packed record size at runtime. */
+    public boolean isAdaptiveBatching() {
+        return adaptiveBatching;
+    }
+
+    /** Upper bound for the packed record size chosen by the batching controller. */
+    public int getMaxPackedWords() {
+        return maxPackedWords;
+    }
+
+    /** Average request latency the batching controller tries to stay under. */
+    public long getTargetRequestLatencyMs() {
+        return targetRequestLatencyMs;
+    }
+
+    /** How often the batching controller looks at the producer metrics. */
+    public long getAdaptIntervalMs() {
+        return adaptIntervalMs;
+    }
+
+    /**
+     * Directory fully acknowledged files are moved to, or null to delete them. A file whose
+     * name is already archived gets a unique suffix.
+     */
+    public String getArchiveDir() {
+        return archiveDir;
+    }
+
+    /**
+     * How long a new file must stay unchanged before it is processed; 0 processes files as
+     * soon as they appear.
+     */
+    public long getSettleMillis() {
+        return settleMillis;
+    }
+
+    /** Files with this suffix are still being written and are never processed. */
+    public String getTempSuffix() {
+        return tempSuffix;
+    }
+
+    /** Whether subdirectories of the watched directories are watched too, including new ones. */
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    /** How often every watched directory is rescanned for missed files; 0 disables it. */
+    public long getRescanIntervalMs() {
+        return rescanIntervalMs;
+    }
+
+    /**
+     * Whether files are claimed before processing, so that several instances can watch the
+     * same directory (see {@link FileClaimer}).
+     */
+    public boolean isClaimFiles() {
+        return claimFiles;
+    }
+
+    /** Name of this instance's claim directory; must be unique among the sharing instances. */
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /** How often this instance refreshes its heartbeat and looks for orphaned claims. */
+    public long getClaimHeartbeatMs() {
+        return claimHeartbeatMs;
+    }
+
+    /** Heartbeat age after which the claims of another instance are taken over. */
+    public long getClaimTimeoutMs() {
+        return claimTimeoutMs;
+    }
+
+    /**
+     * Times a file is sent before it is moved to the {@code failed} directory next to it;
+     * 0 retries it forever.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /** Wait before a failed file is sent again, doubled after every further failure. */
+    public long getRetryBackoffMs() {
+        return retryBackoffMs;
+    }
+
+    /**
+     * Fill level (0 to 1) of the worker queues or of the producer buffer at which the watcher
+     * stops dispatching files.
+     */
+    public double getPauseLoad() {
+        return pauseLoad;
+    }
+
+    /** Fill level under which the watcher dispatches files again. */
+    public double getResumeLoad() {
+        return resumeLoad;
+    }
+
+    /**
+     * Settled files the watcher holds while dispatch is paused. Files beyond that are left in
+     * place and picked up by a rescan once the backlog has drained.
+     */
+    public int getPendingCapacity() {
+        return pendingCapacity;
+    }
+
+    /** How often the pipeline gauges are logged; 0 disables them. */
+    public long getGaugeIntervalMs() {
+        return gaugeIntervalMs;
+    }
+
+    /**
+     * Comma separated globs of the file names to process, e.g. {@code *.txt,*.gz}; empty
+     * accepts every file.
+     */
+    public String getInclude() {
+        return include;
+    }
+
+    /** Comma separated globs of file names never to process. */
+    public String getExclude() {
+        return exclude;
+    }
+
+    /**
+     * Directory keeping how far each file in progress has been acknowledged, so a restarted
+     * producer resumes files instead of sending them again; null disables checkpoints.
+     */
+    public String getCheckpointDir() {
+        return checkpointDir;
+    }
+
+    /** Input bytes between two points a file can be resumed from. */
+    public long getCheckpointBytes() {
+        return checkpointBytes;
+    }
+
+    /** How often the acknowledged offsets are written to the checkpoint directory. */
+    public long getCheckpointIntervalMs() {
+        return checkpointIntervalMs;
+    }
+
+    /**
+     * File indexing the content fingerprints of ingested files, so files with the same content
+     * are skipped; null disables deduplication.
+     */
+    public String getDedupIndex() {
+        return dedupIndex;
+    }
+
+    /** Fingerprints kept in the index; the oldest are dropped first. */
+    public int getDedupMaxEntries() {
+        return dedupMaxEntries;
+    }
+
+    /** How long a fingerprint is kept; 0 keeps it until it is pushed out by newer ones. */
+    public long getDedupRetentionMs() {
+        return dedupRetentionMs;
+    }
+
+    private static String defaultInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "producer";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    private static Properties kafkaOverrides(Properties props) {
+        Properties overrides = new Properties();
+        String file = props.getProperty("producer.kafkaConfig");
+        if (file != null) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(file))) {
+                overrides.load(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read Kafka config " + file, e);
+            }
+        }
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith("kafka.")) {
+                overrides.put(key.substring("kafka.".length()), props.getProperty(key));
+            }
+        }
+        return overrides;
+    }
+}
@@ -0,0 +1,47 @@
+package org.example;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Preset batching, compression and acknowledgement settings for the {@code KafkaProducer}.
+ * Explicit Kafka settings given by the user are applied on top of the preset.
+ */
+public enum ThroughputProfile {
+    /** Kafka client defaults. */
+    DEFAULT {
+        @Override
+        void applyTo(Properties props) {
+        }
+    },
+    /** Large, compressed batches for millions of tiny word records. */
+    THROUGHPUT {
+        @Override
+        void applyTo(Properties props) {
+            props.put(ProducerConfig.LINGER_MS_CONFIG, "50");
+            props.put(ProducerConfig.BATCH_SIZE_CONFIG, String.valueOf(256 * 1024));
+            props.put(ProducerConfig.BUFFER_MEMORY_CONFIG, String.valueOf(128L * 1024 * 1024));
+            props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+            props.put(ProducerConfig.ACKS_CONFIG, "all");
+        }
+    },
+    /** Send as soon as possible and wait for the leader only. */
+    LATENCY {
+        @Override
+        void applyTo(Properties props) {
+            props.put(ProducerConfig.LINGER_MS_CONFIG, "0");
+            props.put(ProducerConfig.BATCH_SIZE_CONFIG, String.valueOf(16 * 1024));
+            props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "none");
+            props.put(ProducerConfig.ACKS_CONFIG, "1");
+            props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "false");
+        }
+    };
+
+    abstract void applyTo(Properties props);
+
+    public static ThroughputProfile parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,94 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel: a ring of buckets advanced one bucket per tick by a single thread.
+ * <p>
+ * Scheduling and expiring a timer are constant time however many timers are pending, and
+ * all of them share one thread instead of a sleeping thread each. Timers fire on the wheel
+ * thread, up to one tick late.
+ */
+public class TimerWheel<T> {
+    private static final Logger log = LoggerFactory.getLogger(TimerWheel.class);
+
+    private static final class Timer<T> {
+        final T item;
+        final long deadlineNanos;
+        long remainingRounds;
+
+        Timer(T item, long deadlineNanos) {
+            this.item = item;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private final ArrayDeque<Timer<T>>[] buckets;
+    private final Queue<Timer<T>> scheduled = new ConcurrentLinkedQueue<>();
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private final Consumer<T> onExpired;
+    private final ScheduledExecutorService ticker;
+    private long tick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimerWheel(String name, long tickMillis, int bucketCount, Consumer<T> onExpired) {
+        this.buckets = new ArrayDeque[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.onExpired = onExpired;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Calls the expiry handler with {@code item} after {@code delayMillis}. Thread safe. */
+    public void schedule(T item, long delayMillis) {
+        long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        scheduled.add(new Timer<>(item, deadline));
+    }
+
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private void tick() {
+        Timer<T> timer;
+        while ((timer = scheduled.poll()) != null) {
+            long deadlineTick = Math.max(timer.deadlineNanos / tickNanos, tick);
+            timer.remainingRounds = (deadlineTick - tick) / buckets.length;
+            buckets[(int) (deadlineTick % buckets.length)].add(timer);
+        }
+        Iterator<Timer<T>> due = buckets[(int) (tick % buckets.length)].iterator();
+        while (due.hasNext()) {
+            Timer<T> next = due.next();
+            if (next.remainingRounds > 0) {
+                next.remainingRounds--;
+            } else {
+                due.remove();
+                try {
+                    onExpired.accept(next.item);
+                } catch (RuntimeException e) {
+                    // An escaping exception would cancel the ticker and stop every timer
+                    log.error("Timer for {} failed", next.item, e);
+                }
+            }
+        }
+        tick++;
+    }
+}
@@ -0,0 +1,57 @@
+package org.example;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.common.KafkaException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maps a word length to the topic its words are sent to ("3" for three letter words).
+ * <p>
+ * Topic names are built once, so routing a word is a plain array load.
+ */
+public class TopicRouter {
+    private static final Logger log = LoggerFactory.getLogger(TopicRouter.class);
+
+    private final String[] topics;
+
+    public TopicRouter(int maxWordLength) {
+        this.topics = new String[maxWordLength + 1];
+        for (int length = 1; length <= maxWordLength; length++) {
+            topics[length] = String.valueOf(length);
+        }
+    }
+
+    /**
+     * Fetches the partition metadata of every topic in the background, so the first word sent
+     * to a topic is less likely to stall a worker on a metadata request. Returns at once: each
+     * lookup can block for up to {@code max.block.ms}, which must not hold up startup. The
+     * warm-up stops at the first topic that cannot be resolved, since the broker is then most
+     * likely unreachable; the remaining topics are discovered on their first send.
+     */
+    public void warmUp(KafkaProducer<?, ?> producer) {
+        Thread thread = new Thread(() -> {
+            for (int length = 1; length < topics.length; length++) {
+                try {
+                    producer.partitionsFor(topics[length]);
+                } catch (KafkaException e) {
+                    log.warn("Could not fetch metadata for topic {}, skipping the rest of the warm-up: {}",
+                            topics[length], e.getMessage());
+                    return;
+                }
+            }
+            log.debug("Fetched metadata for topics 1 to {}", topics.length - 1);
+        }, "topic-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getMaxWordLength() {
+        return topics.length - 1;
+    }
+
+    /** Topic for words of the given length, which must be between 1 and the max word length. */
+    public String topicFor(int wordLength) {
+        return topics[wordLength];
+    }
+}
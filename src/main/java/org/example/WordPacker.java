@@ -0,0 +1,116 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Packs many words of the same length into a single record value.
+ * <p>
+ * A packed value is the word length in ASCII digits, a colon and the UTF-8 bytes of the words
+ * concatenated without separators, e.g. {@code "3:thecatsat"} for "the", "cat" and "sat".
+ * Since every word of a batch has the same length the prefix is written once per record, and
+ * the consumer splits the rest every {@code length} chars. Packed records carry the
+ * {@link #HEADER} header so they can be told apart from single word records.
+ */
+public class WordPacker {
+    public static final String HEADER = "word-format";
+    public static final byte[] HEADER_VALUE = {'p', 'a', 'c', 'k', 'e', 'd'};
+
+    /**
+     * Receives a full batch of words, all of length {@code wordLength}. The buffer is reused
+     * once the sink returns.
+     */
+    @FunctionalInterface
+    public interface RecordSink {
+        void send(int wordLength, byte[] buf, int length);
+    }
+
+    private final byte[][] prefixes;
+    private final byte[][] batches;
+    private final int[] sizes;
+    private final int[] counts;
+    private final int wordsPerRecord;
+    private final RecordSink sink;
+
+    public WordPacker(int maxWordLength, int wordsPerRecord, RecordSink sink) {
+        this.prefixes = new byte[maxWordLength + 1][];
+        this.batches = new byte[maxWordLength + 1][];
+        this.sizes = new int[maxWordLength + 1];
+        this.counts = new int[maxWordLength + 1];
+        this.wordsPerRecord = wordsPerRecord;
+        this.sink = sink;
+        for (int length = 1; length <= maxWordLength; length++) {
+            prefixes[length] = (length + ":").getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Adds a word to the batch of its length.
+     *
+     * @return false if the word starts with a UTF-8 continuation byte (malformed input, e.g.
+     *         Latin-1 text) and must be sent on its own: {@link #unpack} finds where words start
+     *         by their lead bytes, so it would be glued to the word before it
+     */
+    public boolean add(int wordLength, byte[] buf, int offset, int length) {
+        if ((buf[offset] & 0xC0) == 0x80) {
+            return false;
+        }
+        byte[] batch = batches[wordLength];
+        if (batch == null) {
+            batch = new byte[prefixes[wordLength].length + wordLength * wordsPerRecord];
+            batches[wordLength] = batch;
+        }
+        if (counts[wordLength] == 0) {
+            System.arraycopy(prefixes[wordLength], 0, batch, 0, prefixes[wordLength].length);
+            sizes[wordLength] = prefixes[wordLength].length;
+        }
+        int size = sizes[wordLength];
+        if (size + length > batch.length) {
+            batch = Arrays.copyOf(batch, Math.max(size + length, batch.length * 2));
+            batches[wordLength] = batch;
+        }
+        System.arraycopy(buf, offset, batch, size, length);
+        sizes[wordLength] = size + length;
+        if (++counts[wordLength] == wordsPerRecord) {
+            flush(wordLength);
+        }
+        return true;
+    }
+
+    /** Sends every partial batch. */
+    public void flush() {
+        for (int length = 1; length < batches.length; length++) {
+            flush(length);
+        }
+    }
+
+    private void flush(int wordLength) {
+        if (counts[wordLength] == 0) {
+            return;
+        }
+        sink.send(wordLength, batches[wordLength], sizes[wordLength]);
+        counts[wordLength] = 0;
+    }
+
+    /** Reports every word of a packed value to {@code sink}, as slices of {@code packed}. */
+    public static void unpack(byte[] packed, WordTokenizer.WordSink sink) {
+        int i = 0;
+        int wordLength = 0;
+        while (packed[i] != ':') {
+            wordLength = wordLength * 10 + (packed[i++] - '0');
+        }
+        i++;
+        while (i < packed.length) {
+            int start = i;
+            int chars = 0;
+            // Take wordLength chars plus the continuation bytes of the last one
+            while (i < packed.length && (chars < wordLength || (packed[i] & 0xC0) == 0x80)) {
+                int b = packed[i++] & 0xFF;
+                if ((b & 0xC0) != 0x80) {
+                    chars += (b & 0xF8) == 0xF0 ? 2 : 1;
+                }
+            }
+            sink.onWord(packed, start, i - start);
+        }
+    }
+}
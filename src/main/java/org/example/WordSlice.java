@@ -0,0 +1,33 @@
+package org.example;
+
+/**
+ * A mutable view of a word or packed batch inside a byte buffer, used as record value so that
+ * words go from the input bytes to Kafka without being decoded into a {@code String}.
+ * <p>
+ * {@code KafkaProducer.send} serializes the value before returning, so a slice (and the buffer
+ * behind it) can be repointed and reused for the next record as soon as {@code send} returns.
+ */
+public class WordSlice {
+    private byte[] buf;
+    private int offset;
+    private int length;
+
+    public WordSlice set(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    public byte[] getBuf() {
+        return buf;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,19 @@
+package org.example;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Arrays;
+
+/**
+ * Serializes a {@link WordSlice} by copying its raw bytes, with no charset conversion.
+ */
+public class WordSliceSerializer implements Serializer<WordSlice> {
+
+    @Override
+    public byte[] serialize(String topic, WordSlice slice) {
+        if (slice == null) {
+            return null;
+        }
+        return Arrays.copyOfRange(slice.getBuf(), slice.getOffset(), slice.getOffset() + slice.getLength());
+    }
+}
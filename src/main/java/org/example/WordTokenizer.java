@@ -0,0 +1,148 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits UTF-8 encoded text into whitespace separated words in a single pass.
+ * <p>
+ * Input can be fed in arbitrary pieces (for example consecutive windows of a mapped file):
+ * a word cut by the end of one piece is carried over and completed by the next one.
+ * Words are reported to a {@link WordSink} as slices of a reusable scratch buffer, so no
+ * intermediate {@code String} or array is created. Whitespace is the same set matched
+ * by the regex {@code \s}: space, tab, line feed, vertical tab, form feed and carriage return.
+ * <p>
+ * The tokenizer also keeps track of input offsets, so callers can tell how far into the input
+ * the words reported so far reach.
+ * <p>
+ * Instances are stateful and not thread safe; use one tokenizer per input stream.
+ */
+public class WordTokenizer {
+
+    /**
+     * Receives the words found by the tokenizer. The slice is only valid for the duration
+     * of the call: the buffer may be reused as soon as the sink returns.
+     */
+    @FunctionalInterface
+    public interface WordSink {
+        void onWord(byte[] buf, int offset, int length);
+    }
+
+    private static final boolean[] WHITESPACE = new boolean[256];
+
+    static {
+        WHITESPACE[' '] = true;
+        WHITESPACE['\t'] = true;
+        WHITESPACE['\n'] = true;
+        WHITESPACE[0x0B] = true;
+        WHITESPACE['\f'] = true;
+        WHITESPACE['\r'] = true;
+    }
+
+    private final WordSink sink;
+    private final byte[] word;
+    private int wordLength;
+    private boolean oversized;
+    private long position;
+    private long wordEnd;
+
+    /**
+     * @param maxWordBytes words longer than this many bytes are skipped instead of reported,
+     *                     which keeps the carry buffer bounded on input without whitespace
+     */
+    public WordTokenizer(WordSink sink, int maxWordBytes) {
+        this(sink, maxWordBytes, 0);
+    }
+
+    /**
+     * @param startOffset input offset of the first byte fed, when tokenizing from the middle of a file
+     */
+    public WordTokenizer(WordSink sink, int maxWordBytes, long startOffset) {
+        this.sink = sink;
+        this.word = new byte[maxWordBytes];
+        this.position = startOffset;
+        this.wordEnd = startOffset;
+    }
+
+    /** Input offset of the next byte to be fed. */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Input offset just past the last word ended so far; while a word is being reported this is
+     * the end of that word. Input up to this offset can be skipped without splitting a word.
+     */
+    public long getWordEnd() {
+        return wordEnd;
+    }
+
+    /**
+     * Tokenizes a complete, self-contained piece of input.
+     */
+    public void tokenize(byte[] buf, int offset, int length) {
+        feed(ByteBuffer.wrap(buf, offset, length));
+        finish();
+    }
+
+    /**
+     * Consumes the remaining bytes of {@code buf}. A word running up to the end of the buffer
+     * is held back until whitespace, another call or {@link #finish()} terminates it.
+     */
+    public void feed(ByteBuffer buf) {
+        int start = buf.position();
+        for (int i = start, end = buf.limit(); i < end; i++) {
+            byte b = buf.get(i);
+            if (isWhitespace(b)) {
+                if (wordLength > 0) {
+                    wordEnd = position + (i - start);
+                    endWord();
+                }
+            } else if (wordLength < word.length) {
+                word[wordLength++] = b;
+            } else {
+                oversized = true;
+            }
+        }
+        position += buf.limit() - start;
+        buf.position(buf.limit());
+    }
+
+    /**
+     * Reports the word pending at the end of the input, if any.
+     */
+    public void finish() {
+        wordEnd = position;
+        endWord();
+    }
+
+    private void endWord() {
+        if (wordLength > 0 && !oversized) {
+            sink.onWord(word, 0, wordLength);
+        }
+        wordLength = 0;
+        oversized = false;
+    }
+
+    public static boolean isWhitespace(byte b) {
+        return WHITESPACE[b & 0xFF];
+    }
+
+    /**
+     * Returns the number of UTF-16 chars the given UTF-8 slice decodes to, i.e. what
+     * {@code String.length()} would report for a well-formed word, without decoding it.
+     * Malformed input can count 0: a slice of continuation bytes only has no lead byte.
+     */
+    public static int charLength(byte[] buf, int offset, int length) {
+        int chars = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int b = buf[i] & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                chars++;
+            }
+            if ((b & 0xF8) == 0xF0) {
+                chars++;  // 4 byte sequences become a surrogate pair
+            }
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,88 @@
+package org.example;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed size thread pool with a bounded submission queue.
+ * <p>
+ * When the queue is full {@link #submit(Runnable)} blocks the caller until a slot frees up,
+ * so a burst of work slows the submitter down instead of piling up tasks or threads.
+ */
+public class WorkerPool {
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+
+    public WorkerPool(String name, int threads, int queueCapacity) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads(name), WorkerPool::blockUntilQueued);
+    }
+
+    public void submit(Runnable task) {
+        executor.execute(task);
+    }
+
+    /** Tasks waiting for a worker. */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /** Share of the queue in use, between 0 and 1. */
+    public double getQueueUtilization() {
+        return (double) getQueueDepth() / queueCapacity;
+    }
+
+    /** Workers currently running a task. */
+    public int getActiveWorkers() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompletedTasks() {
+        return executor.getCompletedTaskCount();
+    }
+
+    /**
+     * Stops accepting work, lets queued tasks finish and waits up to {@code timeoutMillis}
+     * for them; whatever is still running after that is interrupted.
+     *
+     * @return true if every task completed in time
+     */
+    public boolean shutdown(long timeoutMillis) throws InterruptedException {
+        executor.shutdown();
+        if (executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            return true;
+        }
+        executor.shutdownNow();
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return name + "[active=" + getActiveWorkers() + ", queued=" + getQueueDepth()
+                + ", completed=" + getCompletedTasks() + "]";
+    }
+
+    private static void blockUntilQueued(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Worker pool is shut down");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for a free slot", e);
+        }
+    }
+
+    private static ThreadFactory namedThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> new Thread(task, name + "-" + counter.incrementAndGet());
+    }
+}
@@ -0,0 +1,71 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CheckpointStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void savesLoadsAndDeletesOffsets() throws IOException {
+        CheckpointStore store = new CheckpointStore(dir.resolve("checkpoints"));
+
+        assertEquals(0, store.load("missing.ckpt"));
+        store.save("words.ckpt", 4096);
+        assertEquals(4096, store.load("words.ckpt"));
+        store.save("words.ckpt", 8192);
+        assertEquals(8192, store.load("words.ckpt"));
+        store.delete("words.ckpt");
+        assertEquals(0, store.load("words.ckpt"));
+    }
+
+    @Test
+    void keepsTheKeyWhenAFileIsRenamed() throws IOException {
+        CheckpointStore store = new CheckpointStore(dir.resolve("checkpoints"));
+        Path file = Files.writeString(dir.resolve("words.txt"), "the cat sat on the mat");
+        String key = key(store, file);
+
+        // As when a claimed file is given back next to a file of the same name
+        Path renamed = Files.move(file, dir.resolve("words.txt." + System.nanoTime()));
+
+        assertEquals(key, key(store, renamed));
+    }
+
+    @Test
+    void separatesFilesOfTheSameNameInDifferentDirectories() throws IOException {
+        CheckpointStore store = new CheckpointStore(dir.resolve("checkpoints"));
+        Path first = Files.writeString(Files.createDirectories(dir.resolve("a")).resolve("words.txt"), "the cat sat");
+        Path second = Files.writeString(Files.createDirectories(dir.resolve("b")).resolve("words.txt"), "a dog ran!!");
+        Files.setLastModifiedTime(second, Files.getLastModifiedTime(first));
+
+        assertFalse(key(store, first).equals(key(store, second)));
+    }
+
+    @Test
+    void changesTheKeyWhenTheTailChanges() throws IOException {
+        CheckpointStore store = new CheckpointStore(dir.resolve("checkpoints"));
+        byte[] content = new byte[256 * 1024];
+        Path file = Files.write(dir.resolve("words.txt"), content);
+        String key = key(store, file);
+
+        content[content.length - 1] = 'x';
+        Files.write(file, content);
+
+        assertFalse(key.equals(key(store, file)));
+    }
+
+    private static String key(CheckpointStore store, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            return store.key(channel, 1_000);
+        }
+    }
+}
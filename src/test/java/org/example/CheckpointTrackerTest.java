@@ -0,0 +1,101 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CheckpointTrackerTest {
+    private final FileCompletion completion = new FileCompletion(Paths.get("words.txt"));
+
+    @Test
+    void startsAtTheResumeOffset() {
+        CheckpointTracker tracker = new CheckpointTracker("key", completion, 500);
+
+        assertEquals(500, tracker.getWatermark());
+    }
+
+    @Test
+    void movesPastASegmentOnceItIsClosedAndAcknowledged() {
+        CheckpointTracker tracker = new CheckpointTracker("key", completion, 0);
+        CheckpointTracker.Segment segment = tracker.openSegment(0);
+        send(segment);
+        send(segment);
+
+        segment.close(10);
+        assertEquals(0, tracker.getWatermark());
+        ack(segment);
+        assertEquals(0, tracker.getWatermark());
+        ack(segment);
+
+        assertEquals(10, tracker.getWatermark());
+    }
+
+    @Test
+    void waitsForEarlierSegmentsWhenAcksArriveOutOfOrder() {
+        CheckpointTracker tracker = new CheckpointTracker("key", completion, 0);
+        CheckpointTracker.Segment first = sentSegment(tracker, 0, 10);
+        CheckpointTracker.Segment second = sentSegment(tracker, 10, 20);
+        CheckpointTracker.Segment third = sentSegment(tracker, 20, 30);
+
+        ack(third);
+        ack(second);
+        assertEquals(0, tracker.getWatermark());
+
+        ack(first);
+        assertEquals(30, tracker.getWatermark());
+    }
+
+    @Test
+    void stopsAtTheGapLeftByAnUnfinishedSegment() {
+        CheckpointTracker tracker = new CheckpointTracker("key", completion, 0);
+        // Two parallel chunks, each cut into segments of its own
+        CheckpointTracker.Segment chunkOneFirst = sentSegment(tracker, 0, 40);
+        CheckpointTracker.Segment chunkOneSecond = tracker.openSegment(40);
+        send(chunkOneSecond);
+        CheckpointTracker.Segment chunkTwo = sentSegment(tracker, 100, 150);
+
+        ack(chunkTwo);
+        ack(chunkOneFirst);
+        assertEquals(40, tracker.getWatermark());
+
+        ack(chunkOneSecond);
+        assertEquals(40, tracker.getWatermark());
+
+        chunkOneSecond.close(100);
+        assertEquals(150, tracker.getWatermark());
+    }
+
+    @Test
+    void neverMovesPastAFailedRecord() {
+        CheckpointTracker tracker = new CheckpointTracker("key", completion, 0);
+        CheckpointTracker.Segment first = sentSegment(tracker, 0, 10);
+        CheckpointTracker.Segment second = sentSegment(tracker, 10, 20);
+        CheckpointTracker.Segment third = sentSegment(tracker, 20, 30);
+
+        ack(first);
+        second.onCompletion(null, new IOException("broker down"));
+        ack(third);
+
+        assertEquals(10, tracker.getWatermark());
+    }
+
+    /** Opens a segment, sends one record for it and closes it at {@code end}. */
+    private CheckpointTracker.Segment sentSegment(CheckpointTracker tracker, long start, long end) {
+        CheckpointTracker.Segment segment = tracker.openSegment(start);
+        send(segment);
+        segment.close(end);
+        return segment;
+    }
+
+    private void send(CheckpointTracker.Segment segment) {
+        completion.beforeSend();
+        segment.beforeSend();
+    }
+
+    private static void ack(CheckpointTracker.Segment segment) {
+        segment.onCompletion(null, null);
+    }
+}
@@ -0,0 +1,110 @@
+package org.example;
+
+import com.google.common.hash.HashCode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentIndexTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void countsHitsAndMisses() throws IOException {
+        ContentIndex index = new ContentIndex(dir.resolve("index"), 100, 0);
+        HashCode recorded = hash("the cat sat");
+
+        assertFalse(index.contains(recorded));
+        index.record(recorded, 11);
+
+        assertTrue(index.contains(recorded));
+        assertFalse(index.contains(hash("a dog ran!!")));
+        assertEquals(1, index.getHits());
+        assertEquals(2, index.getMisses());
+    }
+
+    @Test
+    void rulesOutSizesNeverRecorded() throws IOException {
+        ContentIndex index = new ContentIndex(dir.resolve("index"), 100, 0);
+        index.record(hash("the cat sat"), 11);
+
+        assertTrue(index.mayContain(11));
+        assertFalse(index.mayContain(12));
+        assertEquals(0, index.getHits());
+        assertEquals(1, index.getMisses());
+    }
+
+    @Test
+    void evictsTheOldestEntriesFirst() throws IOException {
+        ContentIndex index = new ContentIndex(dir.resolve("index"), 2, 0);
+        HashCode first = hash("one");
+        index.record(first, 3);
+        index.record(hash("two"), 3);
+        index.record(hash("three"), 5);
+
+        assertEquals(2, index.size());
+        assertFalse(index.contains(first));
+        assertTrue(index.contains(hash("two")));
+    }
+
+    @Test
+    void forgetsSizesOfEvictedEntries() throws IOException {
+        ContentIndex index = new ContentIndex(dir.resolve("index"), 1, 0);
+        index.record(hash("one"), 3);
+        index.record(hash("three"), 5);
+
+        assertFalse(index.mayContain(3));
+        assertTrue(index.mayContain(5));
+    }
+
+    @Test
+    void expiresEntriesAfterTheRetention() throws Exception {
+        ContentIndex index = new ContentIndex(dir.resolve("index"), 100, 50);
+        HashCode recorded = hash("the cat sat");
+        index.record(recorded, 11);
+
+        Thread.sleep(100);
+
+        assertFalse(index.mayContain(11));
+        assertFalse(index.contains(recorded));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void reloadsEntriesFromDisk() throws IOException {
+        Path file = dir.resolve("index");
+        HashCode recorded = hash("the cat sat");
+        new ContentIndex(file, 100, 0).record(recorded, 11);
+
+        ContentIndex reloaded = new ContentIndex(file, 100, 0);
+
+        assertTrue(reloaded.mayContain(11));
+        assertTrue(reloaded.contains(recorded));
+    }
+
+    @Test
+    void skipsATornLastLine() throws IOException {
+        Path file = dir.resolve("index");
+        HashCode recorded = hash("the cat sat");
+        new ContentIndex(file, 100, 0).record(recorded, 11);
+        Files.writeString(file, "0123abc 4", StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+
+        ContentIndex reloaded = new ContentIndex(file, 100, 0);
+
+        assertEquals(1, reloaded.size());
+        assertTrue(reloaded.contains(recorded));
+    }
+
+    private static HashCode hash(String content) {
+        return ContentIndex.HASH.hashString(content, StandardCharsets.UTF_8);
+    }
+}
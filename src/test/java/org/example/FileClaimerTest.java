@@ -0,0 +1,160 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileClaimerTest {
+    private static final long TIMEOUT_MILLIS = 60_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void claimMovesTheFileIntoTheInstanceDirectory() throws IOException {
+        FileClaimer claimer = new FileClaimer("p1", TIMEOUT_MILLIS);
+        Path file = Files.writeString(dir.resolve("words.txt"), "the cat sat");
+
+        Path claimed = claimer.claim(file);
+
+        assertEquals(dir.resolve("processing").resolve("p1").resolve("words.txt"), claimed);
+        assertFalse(Files.exists(file));
+        assertEquals("the cat sat", Files.readString(claimed));
+        assertTrue(FileClaimer.isClaimed(dir, claimed));
+        assertFalse(FileClaimer.isClaimed(dir, file));
+    }
+
+    @Test
+    void onlyOneInstanceWinsAClaim() throws IOException {
+        FileClaimer first = new FileClaimer("p1", TIMEOUT_MILLIS);
+        FileClaimer second = new FileClaimer("p2", TIMEOUT_MILLIS);
+        Path file = Files.writeString(dir.resolve("words.txt"), "the cat sat");
+
+        assertNotNull(first.claim(file));
+        assertNull(second.claim(file));
+    }
+
+    @Test
+    void claimKeepsAClaimedFileOfTheSameName() throws IOException {
+        FileClaimer claimer = new FileClaimer("p1", TIMEOUT_MILLIS);
+        Path first = claimer.claim(Files.writeString(dir.resolve("words.txt"), "first"));
+
+        Path second = claimer.claim(Files.writeString(dir.resolve("words.txt"), "second"));
+
+        assertFalse(first.equals(second));
+        assertEquals("first", Files.readString(first));
+        assertEquals("second", Files.readString(second));
+    }
+
+    @Test
+    void releaseGivesTheFileBack() throws IOException {
+        FileClaimer claimer = new FileClaimer("p1", TIMEOUT_MILLIS);
+        Path file = Files.writeString(dir.resolve("words.txt"), "the cat sat");
+
+        Path released = claimer.release(claimer.claim(file));
+
+        assertEquals(file, released);
+        assertEquals("the cat sat", Files.readString(file));
+    }
+
+    @Test
+    void releaseKeepsANewFileOfTheSameName() throws IOException {
+        FileClaimer claimer = new FileClaimer("p1", TIMEOUT_MILLIS);
+        Path claimed = claimer.claim(Files.writeString(dir.resolve("words.txt"), "old"));
+        Path file = Files.writeString(dir.resolve("words.txt"), "new");
+
+        Path released = claimer.release(claimed);
+
+        assertFalse(file.equals(released));
+        assertEquals("new", Files.readString(file));
+        assertEquals("old", Files.readString(released));
+    }
+
+    @Test
+    void takesOverTheClaimsOfAnInstanceWhoseHeartbeatExpired() throws IOException {
+        FileClaimer crashed = new FileClaimer("p2", TIMEOUT_MILLIS);
+        crashed.claim(Files.writeString(dir.resolve("a.txt"), "a"));
+        crashed.claim(Files.writeString(dir.resolve("b.txt"), "b"));
+        expireHeartbeat("p2");
+
+        int recovered = new FileClaimer("p1", TIMEOUT_MILLIS).recoverOrphans(dir);
+
+        assertEquals(2, recovered);
+        assertEquals(List.of("a.txt", "b.txt"), watchedFiles());
+        assertEquals(List.of(), claimDirs());
+    }
+
+    @Test
+    void leavesLiveClaimsAlone() throws IOException {
+        FileClaimer live = new FileClaimer("p2", TIMEOUT_MILLIS);
+        live.claim(Files.writeString(dir.resolve("a.txt"), "a"));
+        live.heartbeat();
+
+        assertEquals(0, new FileClaimer("p1", TIMEOUT_MILLIS).recoverOrphans(dir));
+        assertEquals(List.of(), watchedFiles());
+    }
+
+    @Test
+    void neverTakesOverItsOwnClaimsWhileRunning() throws IOException {
+        FileClaimer claimer = new FileClaimer("p1", TIMEOUT_MILLIS);
+        claimer.claim(Files.writeString(dir.resolve("a.txt"), "a"));
+        expireHeartbeat("p1");
+
+        assertEquals(0, claimer.recoverOrphans(dir));
+    }
+
+    @Test
+    void recoversItsOwnClaimsAfterARestart() throws IOException {
+        new FileClaimer("p1", TIMEOUT_MILLIS).claim(Files.writeString(dir.resolve("a.txt"), "a"));
+        // A recovery of p2's claims that p1 had started when it crashed
+        Path recovering = Files.createDirectories(dir.resolve("processing").resolve(".recovering-p2-p1"));
+        Files.writeString(recovering.resolve("b.txt"), "b");
+
+        FileClaimer restarted = new FileClaimer("p1", TIMEOUT_MILLIS);
+
+        assertEquals(0, restarted.recoverOrphans(dir));
+        assertEquals(2, restarted.recoverOwn(dir));
+        assertEquals(List.of("a.txt", "b.txt"), watchedFiles());
+        assertEquals(List.of(), claimDirs());
+    }
+
+    @Test
+    void recoverOwnLeavesOtherInstancesAlone() throws IOException {
+        new FileClaimer("p2", TIMEOUT_MILLIS).claim(Files.writeString(dir.resolve("a.txt"), "a"));
+        expireHeartbeat("p2");
+
+        assertEquals(0, new FileClaimer("p1", TIMEOUT_MILLIS).recoverOwn(dir));
+        assertEquals(List.of("p2"), claimDirs());
+    }
+
+    private void expireHeartbeat(String instanceId) throws IOException {
+        FileTime longAgo = FileTime.fromMillis(System.currentTimeMillis() - 2 * TIMEOUT_MILLIS);
+        Files.setLastModifiedTime(dir.resolve("processing").resolve(instanceId).resolve(".heartbeat"), longAgo);
+    }
+
+    private List<String> watchedFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(Files::isRegularFile).map(path -> path.getFileName().toString()).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private List<String> claimDirs() throws IOException {
+        try (Stream<Path> dirs = Files.list(dir.resolve("processing"))) {
+            return dirs.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileSettlerTest {
+    @TempDir
+    Path dir;
+
+    private final BlockingQueue<Path> settled = new LinkedBlockingQueue<>();
+    private FileSettler settler;
+
+    @AfterEach
+    void close() {
+        settler.close();
+    }
+
+    @Test
+    void passesFilesOnRightAwayWithoutSettleTime() throws IOException {
+        settler = new FileSettler(0, ".tmp", settled::add);
+        Path file = Files.writeString(dir.resolve("words.txt"), "a b c");
+
+        settler.track(file);
+
+        assertEquals(file, settled.poll());
+    }
+
+    @Test
+    void ignoresFilesWithTheTempSuffix() throws Exception {
+        settler = new FileSettler(50, ".tmp", settled::add);
+        Path temp = Files.writeString(dir.resolve("words.txt.tmp"), "a b c");
+
+        settler.track(temp);
+
+        assertEquals(0, settler.getTrackedFiles());
+        assertNull(settled.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void treatsEveryNameAsFinalWithAnEmptySuffix() {
+        settler = new FileSettler(0, "", settled::add);
+        Path file = dir.resolve("words.txt.tmp");
+
+        settler.track(file);
+
+        assertEquals(file, settled.poll());
+    }
+
+    @Test
+    void passesAStableFileOnOnceAfterTheSettleTime() throws Exception {
+        settler = new FileSettler(100, ".tmp", settled::add);
+        Path file = Files.writeString(dir.resolve("words.txt"), "a b c");
+        long start = System.nanoTime();
+
+        settler.track(file);
+        settler.track(file);
+
+        assertEquals(file, settled.poll(2, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= 100, "settled after " + elapsedMillis + " ms");
+        assertNull(settled.poll(300, TimeUnit.MILLISECONDS));
+        assertEquals(0, settler.getTrackedFiles());
+    }
+
+    @Test
+    void waitsWhileTheFileKeepsGrowing() throws Exception {
+        settler = new FileSettler(150, ".tmp", settled::add);
+        Path file = Files.writeString(dir.resolve("words.txt"), "a");
+
+        settler.track(file);
+        for (int i = 0; i < 8; i++) {
+            Thread.sleep(50);
+            Files.writeString(file, " b", StandardOpenOption.APPEND);
+        }
+
+        assertEquals(1, settler.getTrackedFiles());
+        assertTrue(settled.isEmpty(), "settled while still being written");
+        assertEquals(file, settled.poll(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void dropsAFileDeletedBeforeItSettles() throws Exception {
+        settler = new FileSettler(50, ".tmp", settled::add);
+        Path file = Files.writeString(dir.resolve("words.txt"), "a b c");
+
+        settler.track(file);
+        Files.delete(file);
+
+        assertNull(settled.poll(300, TimeUnit.MILLISECONDS));
+        assertEquals(0, settler.getTrackedFiles());
+    }
+}
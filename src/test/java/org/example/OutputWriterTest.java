@@ -0,0 +1,102 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OutputWriterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsLinesBufferedUntilFlush() throws IOException {
+        Path file = dir.resolve("out.txt");
+        try (OutputWriter writer = new OutputWriter(file, 1024)) {
+            writeLine(writer, "the");
+            writeLine(writer, "cat");
+            assertEquals("", Files.readString(file));
+
+            writer.flush();
+            assertEquals("the\ncat\n", Files.readString(file));
+        }
+    }
+
+    @Test
+    void writesWhenTheBufferFillsUp() throws IOException {
+        Path file = dir.resolve("out.txt");
+        try (OutputWriter writer = new OutputWriter(file, 8)) {
+            writeLine(writer, "the");
+            writeLine(writer, "cat");
+            writeLine(writer, "sat");
+
+            assertEquals("the\ncat\n", Files.readString(file));
+        }
+        assertEquals("the\ncat\nsat\n", Files.readString(file));
+    }
+
+    @Test
+    void writesAWordLargerThanTheBufferInOrder() throws IOException {
+        Path file = dir.resolve("out.txt");
+        try (OutputWriter writer = new OutputWriter(file, 8)) {
+            writeLine(writer, "ab");
+            writeLine(writer, "supercalifragilistic");
+            writeLine(writer, "cd");
+        }
+
+        assertEquals("ab\nsupercalifragilistic\ncd\n", Files.readString(file));
+    }
+
+    @Test
+    void keepsWritingCorrectlyAfterTheBufferIsResized() throws IOException {
+        Path file = dir.resolve("out.txt");
+        try (OutputWriter writer = new OutputWriter(file, 64)) {
+            writeLine(writer, "before");
+            writer.setBufferBytes(4);
+            writeLine(writer, "pending");
+            writer.flush();
+            // The smaller buffer is in place now, so a word that does not fit is written at once;
+            // only its line feed is buffered
+            writeLine(writer, "after");
+            assertEquals("before\npending\nafter", Files.readString(file));
+            writeLine(writer, "ok");
+            writer.setBufferBytes(1024);
+            writeLine(writer, "grown");
+        }
+
+        assertEquals("before\npending\nafter\nok\ngrown\n", Files.readString(file));
+    }
+
+    @Test
+    void appendsToAnExistingFile() throws IOException {
+        Path file = Files.writeString(dir.resolve("out.txt"), "earlier\n");
+        try (OutputWriter writer = new OutputWriter(file, 1024)) {
+            writeLine(writer, "later");
+            writer.sync();
+        }
+
+        assertEquals("earlier\nlater\n", Files.readString(file));
+    }
+
+    @Test
+    void writesASliceOfALargerBuffer() throws IOException {
+        Path file = dir.resolve("out.txt");
+        byte[] buf = "xxthecatxx".getBytes(StandardCharsets.US_ASCII);
+        try (OutputWriter writer = new OutputWriter(file, 1024)) {
+            writer.writeLine(buf, 2, 3);
+            writer.writeLine(buf, 5, 3);
+        }
+
+        assertEquals("the\ncat\n", Files.readString(file));
+    }
+
+    private static void writeLine(OutputWriter writer, String word) throws IOException {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        writer.writeLine(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,175 @@
+package org.example;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionLaneTest {
+    private static final String TOPIC = "5";
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
+
+    @TempDir
+    Path dir;
+
+    private OutputFiles outputs;
+    private PartitionLane lane;
+
+    @AfterEach
+    void close() throws Exception {
+        lane.close(CLOSE_TIMEOUT_MILLIS);
+        outputs.close();
+    }
+
+    @Test
+    void writesBatchesInOffsetOrder() throws Exception {
+        lane = newLane(4);
+
+        assertTrue(lane.offer(batch(0, "hello", "world")));
+        assertTrue(lane.offer(List.of(packed(2, "5:abcdefghij"))));
+        lane.drain();
+
+        assertEquals("hello\nworld\nabcde\nfghij\n", output());
+        assertEquals(3, lane.getNextOffset());
+        assertNull(lane.getFailure());
+    }
+
+    @Test
+    void movesTheOffsetOnlyOnceABatchIsFlushed() throws Exception {
+        lane = newLane(4);
+        OutputWriter writer = outputs.forTopic(TOPIC);
+        assertEquals(-1, lane.getNextOffset());
+
+        // The lane writes under the writer's lock, so holding it stalls the batch
+        synchronized (writer) {
+            assertTrue(lane.offer(batch(10, "hello", "world")));
+            Thread.sleep(100);
+            assertEquals(-1, lane.getNextOffset());
+        }
+        lane.drain();
+
+        assertEquals(12, lane.getNextOffset());
+        assertEquals("hello\nworld\n", output());
+    }
+
+    @Test
+    void refusesBatchesWhenFull() throws Exception {
+        lane = newLane(2);
+        OutputWriter writer = outputs.forTopic(TOPIC);
+
+        synchronized (writer) {
+            assertTrue(lane.offer(batch(0, "a")));
+            Thread.sleep(100);  // Taken by the lane thread, which waits for the lock
+            assertTrue(lane.offer(batch(1, "b")));
+            assertTrue(lane.offer(batch(2, "c")));
+            assertFalse(lane.offer(batch(3, "d")));
+        }
+        lane.drain();
+
+        assertTrue(lane.offer(batch(3, "d")));
+        lane.drain();
+        assertEquals("a\nb\nc\nd\n", output());
+        assertEquals(4, lane.getNextOffset());
+    }
+
+    @Test
+    void acceptsEmptyBatchesEvenWhenFull() throws Exception {
+        lane = newLane(1);
+        OutputWriter writer = outputs.forTopic(TOPIC);
+
+        synchronized (writer) {
+            lane.offer(batch(0, "a"));
+            Thread.sleep(100);
+            lane.offer(batch(1, "b"));
+
+            assertTrue(lane.offer(List.of()));
+        }
+    }
+
+    @Test
+    void drainWaitsForEveryQueuedBatch() throws Exception {
+        lane = newLane(8);
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(lane.offer(batch(i, "w" + i)));
+        }
+        lane.drain();
+
+        assertEquals(8, lane.getNextOffset());
+        assertEquals("w0\nw1\nw2\nw3\nw4\nw5\nw6\nw7\n", output());
+    }
+
+    @Test
+    void closeDiscardsBatchesNotStartedYet() throws Exception {
+        lane = newLane(4);
+        OutputWriter writer = outputs.forTopic(TOPIC);
+
+        synchronized (writer) {
+            lane.offer(batch(0, "kept"));
+            Thread.sleep(100);
+            lane.offer(batch(1, "lost"));
+            lane.offer(batch(2, "lost"));
+            // The thread is stuck on the lock, so this returns at the timeout
+            lane.close(100);
+        }
+        lane.drain();
+        lane.close(CLOSE_TIMEOUT_MILLIS);
+
+        assertEquals("kept\n", output());
+        assertEquals(1, lane.getNextOffset());
+    }
+
+    @Test
+    void keepsTheOffsetOfAFailedWriteAndDropsTheRest() throws Exception {
+        lane = newLane(4);
+
+        lane.offer(batch(0, "good"));
+        // A record the lane cannot write
+        lane.offer(List.of(new ConsumerRecord<>(TOPIC, 0, 1L, null, (byte[]) null)));
+        lane.offer(batch(2, "dropped"));
+        lane.drain();
+
+        assertEquals(1, lane.getNextOffset());
+        assertNotNull(lane.getFailure());
+        assertEquals("good\n", output());
+    }
+
+    private PartitionLane newLane(int capacity) {
+        outputs = new OutputFiles(dir.resolve("out-" + OutputFiles.TOPIC_PLACEHOLDER + ".txt").toString(), 1024);
+        return new PartitionLane(new TopicPartition(TOPIC, 0), outputs, capacity);
+    }
+
+    private String output() throws IOException {
+        return Files.readString(dir.resolve("out-" + TOPIC + ".txt"));
+    }
+
+    /** One record per word, at consecutive offsets from {@code offset}. */
+    private static List<ConsumerRecord<String, byte[]>> batch(long offset, String... words) {
+        List<ConsumerRecord<String, byte[]>> batch = new ArrayList<>();
+        for (String word : words) {
+            batch.add(new ConsumerRecord<>(TOPIC, 0, offset++, null, word.getBytes(StandardCharsets.UTF_8)));
+        }
+        return batch;
+    }
+
+    private static ConsumerRecord<String, byte[]> packed(long offset, String value) {
+        ConsumerRecord<String, byte[]> record =
+                new ConsumerRecord<>(TOPIC, 0, offset, null, value.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(WordPacker.HEADER, WordPacker.HEADER_VALUE);
+        return record;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+    private final BlockingQueue<String> expired = new LinkedBlockingQueue<>();
+    private TimerWheel<String> wheel;
+
+    @AfterEach
+    void close() {
+        wheel.close();
+    }
+
+    @Test
+    void firesNoEarlierThanTheDelay() throws InterruptedException {
+        wheel = new TimerWheel<>("test-wheel", 10, 64, expired::add);
+        long start = System.nanoTime();
+
+        wheel.schedule("a", 100);
+
+        assertEquals("a", expired.poll(2, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= 100, "fired after " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void waitsOutDelaysLongerThanOneTurnOfTheWheel() throws InterruptedException {
+        // 4 buckets of 10 ms: the timer passes its bucket twice before it is due
+        wheel = new TimerWheel<>("test-wheel", 10, 4, expired::add);
+
+        wheel.schedule("a", 100);
+
+        assertNull(expired.poll(60, TimeUnit.MILLISECONDS));
+        assertEquals("a", expired.poll(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void firesInDeadlineOrder() throws InterruptedException {
+        wheel = new TimerWheel<>("test-wheel", 10, 8, expired::add);
+
+        wheel.schedule("late", 150);
+        wheel.schedule("early", 30);
+        wheel.schedule("middle", 90);
+
+        for (String item : List.of("early", "middle", "late")) {
+            assertEquals(item, expired.poll(2, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void keepsTickingWhenAHandlerThrows() throws InterruptedException {
+        wheel = new TimerWheel<>("test-wheel", 10, 8, item -> {
+            if (item.equals("bad")) {
+                throw new IllegalStateException("handler failure");
+            }
+            expired.add(item);
+        });
+
+        wheel.schedule("bad", 10);
+        wheel.schedule("good", 50);
+
+        assertEquals("good", expired.poll(2, TimeUnit.SECONDS));
+    }
+}
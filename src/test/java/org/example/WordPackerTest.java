@@ -0,0 +1,101 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WordPackerTest {
+    private final List<String> records = new ArrayList<>();
+    private final WordPacker packer = new WordPacker(10, 3,
+            (wordLength, buf, length) -> records.add(new String(buf, 0, length, StandardCharsets.UTF_8)));
+
+    @Test
+    void packsFullBatchesOfOneLength() {
+        add("the", "cat", "sat", "on");
+
+        assertIterableEquals(List.of("3:thecatsat"), records);
+    }
+
+    @Test
+    void flushSendsPartialBatches() {
+        add("the", "on", "cat", "to");
+        packer.flush();
+
+        assertIterableEquals(List.of("2:onto", "3:thecat"), records);
+    }
+
+    @Test
+    void startsEveryBatchWithItsPrefix() {
+        add("a", "b", "c", "d", "e", "f");
+
+        assertIterableEquals(List.of("1:abc", "1:def"), records);
+    }
+
+    @Test
+    void unpackRoundTrips() {
+        List<String> words = List.of("ab", "cd", "ef", "gh", "ij");
+        add(words.toArray(new String[0]));
+        packer.flush();
+
+        assertEquals(words, unpackAll());
+    }
+
+    @Test
+    void unpackRoundTripsMultibyteWords() {
+        // Same char length, different byte lengths; the emoji counts 2 chars like in a String
+        List<String> words = List.of("però", "più!", "日本語x", "ab😀");
+        add(words.toArray(new String[0]));
+        packer.flush();
+
+        assertEquals(List.of("4:peròpiù!日本語x", "4:ab😀"), records);
+        assertEquals(words, unpackAll());
+    }
+
+    @Test
+    void refusesWordsStartingWithAContinuationByte() {
+        // Starts with a bare continuation byte, like Latin-1 text such as "¿Qué"; both count 2 chars
+        byte[] first = {'a', 'b'};
+        byte[] stray = {(byte) 0x80, 'c', 'd'};
+
+        assertTrue(packer.add(2, first, 0, first.length));
+        assertFalse(packer.add(2, stray, 0, stray.length));
+        packer.flush();
+
+        assertEquals(List.of("ab"), unpackAll());
+    }
+
+    @Test
+    void unpackReadsMultiDigitLengths() {
+        byte[] packed = "10:abcdefghijklmnopqrst".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(List.of("abcdefghij", "klmnopqrst"), unpack(packed));
+    }
+
+    private void add(String... words) {
+        for (String word : words) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            packer.add(word.length(), bytes, 0, bytes.length);
+        }
+    }
+
+    private List<String> unpackAll() {
+        List<String> words = new ArrayList<>();
+        for (String record : records) {
+            words.addAll(unpack(record.getBytes(StandardCharsets.UTF_8)));
+        }
+        return words;
+    }
+
+    private static List<String> unpack(byte[] packed) {
+        List<String> words = new ArrayList<>();
+        WordPacker.unpack(packed, (buf, offset, length) -> words.add(new String(buf, offset, length, StandardCharsets.UTF_8)));
+        return words;
+    }
+}
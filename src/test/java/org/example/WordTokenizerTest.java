@@ -0,0 +1,118 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+
+class WordTokenizerTest {
+    private final List<String> words = new ArrayList<>();
+    private final WordTokenizer tokenizer = new WordTokenizer(
+            (buf, offset, length) -> words.add(new String(buf, offset, length, StandardCharsets.UTF_8)), 64);
+
+    @Test
+    void splitsOnEveryKindOfWhitespace() {
+        tokenize("  the cat\tsat\non\r\nthe\u000Bmat\f");
+
+        assertIterableEquals(List.of("the", "cat", "sat", "on", "the", "mat"), words);
+    }
+
+    @Test
+    void reportsTheLastWordWithoutTrailingWhitespace() {
+        tokenize("hello world");
+
+        assertIterableEquals(List.of("hello", "world"), words);
+    }
+
+    @Test
+    void skipsWordsLongerThanTheLimit() {
+        WordTokenizer small = new WordTokenizer(
+                (buf, offset, length) -> words.add(new String(buf, offset, length, StandardCharsets.UTF_8)), 4);
+        byte[] input = "tiny enormous word".getBytes(StandardCharsets.UTF_8);
+
+        small.tokenize(input, 0, input.length);
+
+        assertIterableEquals(List.of("tiny", "word"), words);
+    }
+
+    @Test
+    void keepsMultibyteCharactersWhole() {
+        tokenize("però naïve 日本語 😀x");
+
+        assertIterableEquals(List.of("però", "naïve", "日本語", "😀x"), words);
+    }
+
+    @Test
+    void joinsWordsSplitAcrossWindows() {
+        byte[] input = "alpha beta gamma".getBytes(StandardCharsets.UTF_8);
+
+        // Windows of every size, so each word gets cut at every position
+        for (int window = 1; window <= input.length; window++) {
+            words.clear();
+            feedInWindows(input, window);
+
+            assertIterableEquals(List.of("alpha", "beta", "gamma"), words, "window of " + window);
+        }
+    }
+
+    @Test
+    void joinsMultibyteCharactersSplitAcrossWindows() {
+        byte[] input = "città 日本 😀".getBytes(StandardCharsets.UTF_8);
+
+        for (int window = 1; window <= input.length; window++) {
+            words.clear();
+            feedInWindows(input, window);
+
+            assertIterableEquals(List.of("città", "日本", "😀"), words, "window of " + window);
+        }
+    }
+
+    @Test
+    void tracksOffsetsFromTheStartOffset() {
+        List<Long> ends = new ArrayList<>();
+        WordTokenizer[] holder = new WordTokenizer[1];
+        holder[0] = new WordTokenizer((buf, offset, length) -> ends.add(holder[0].getWordEnd()), 64, 100);
+
+        holder[0].feed(ByteBuffer.wrap("ab cd".getBytes(StandardCharsets.US_ASCII)));
+        holder[0].feed(ByteBuffer.wrap("e f".getBytes(StandardCharsets.US_ASCII)));
+
+        assertIterableEquals(List.of(102L, 106L), ends);
+        assertEquals(108, holder[0].getPosition());
+        holder[0].finish();
+        assertIterableEquals(List.of(102L, 106L, 108L), ends);
+    }
+
+    @Test
+    void countsCharsLikeString() {
+        for (String word : List.of("cat", "però", "日本語", "😀", "a😀b")) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+
+            assertEquals(word.length(), WordTokenizer.charLength(bytes, 0, bytes.length), word);
+        }
+    }
+
+    @Test
+    void countsNoCharsForStrayContinuationBytes() {
+        // The tail of "è" cut off from its lead byte, as in a word split by a bad encoding
+        byte[] continuation = {(byte) 0xA8, (byte) 0x80};
+
+        assertEquals(0, WordTokenizer.charLength(continuation, 0, continuation.length));
+    }
+
+    private void feedInWindows(byte[] input, int window) {
+        for (int start = 0; start < input.length; start += window) {
+            tokenizer.feed(ByteBuffer.wrap(input, start, Math.min(window, input.length - start)));
+        }
+        tokenizer.finish();
+    }
+
+    private void tokenize(String text) {
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        tokenizer.tokenize(input, 0, input.length);
+    }
+}